@@ -0,0 +1,137 @@
+import hanabi.bench.Workloads;
+
+/**
+ * The engine side of the JMH benchmarks; see Workloads for why this lives in the unnamed package.
+ */
+public class BenchmarkWorkloads implements Workloads {
+	private static final String DISCARD = "DISCARD 0 0";
+
+	// A game kept running across calls by parseAndHandleResponse() and handleAction().
+	private Hanabi game;
+	private long nextSeed;
+
+	// A fixed mid-game position for the Player and CardKnowledge workloads.
+	private final Board board;
+	private final Hand partnerHand;
+	private final Player player;
+	private final CardKnowledge hinted;
+
+	public BenchmarkWorkloads() {
+		board = new Board();
+		board.play(Card.of(Colors.RED, 1));
+		board.play(Card.of(Colors.RED, 2));
+		board.play(Card.of(Colors.BLUE, 1));
+		board.discard(Card.of(Colors.GREEN, 3));
+		board.discard(Card.of(Colors.WHITE, 1));
+		// With no hints left, ask() has to fall through to the gamble and chop rules.
+		board.numHints = 0;
+		board.deckSize = 30;
+
+		partnerHand = new Hand();
+		partnerHand.add(0, Card.of(Colors.YELLOW, 4));
+		partnerHand.add(0, Card.of(Colors.RED, 3));
+		partnerHand.add(0, Card.of(Colors.GREEN, 1));
+		partnerHand.add(0, Card.of(Colors.WHITE, 5));
+		partnerHand.add(0, Card.of(Colors.BLUE, 2));
+
+		player = new Player();
+
+		hinted = new CardKnowledge();
+		hinted.knowValue(2);
+		hinted.eliminateColor(Colors.WHITE);
+	}
+
+	@Override
+	public int playGame(long seed) {
+		return new Hanabi(false, new Player(), new Player(), seed).play();
+	}
+
+	@Override
+	public int parseAndHandleResponse() {
+		Hanabi g = runningGame();
+		g.parseAndHandleResponse(DISCARD);
+		g.switchPlayers();
+		return g.gameEnded() ? 0 : 1;
+	}
+
+	@Override
+	public int handleAction() {
+		Hanabi g = runningGame();
+		g.handleAction(Action.discard(0, 0));
+		g.switchPlayers();
+		return g.gameEnded() ? 0 : 1;
+	}
+
+	/**
+	 * Discarding is always legal, so a game survives one discard per card left in the deck; start a new one
+	 * once it has ended.
+	 */
+	private Hanabi runningGame() {
+		if (game == null || game.gameEnded()) {
+			game = new Hanabi(false, new Player(), new Player(), nextSeed++);
+		}
+		return game;
+	}
+
+	@Override
+	public String ask() {
+		return player.ask(5, partnerHand.view(), board.view());
+	}
+
+	@Override
+	public int askAction() {
+		return player.askAction(5, partnerHand.view(), board.view());
+	}
+
+	@Override
+	public int knowledgeHints() {
+		CardKnowledge inHint = new CardKnowledge();
+		inHint.knowColor(Colors.GREEN);
+		inHint.knowValue(3);
+		CardKnowledge outOfHint = new CardKnowledge();
+		outOfHint.eliminateColor(Colors.GREEN);
+		outOfHint.eliminateValue(3);
+		return inHint.numOptions() + outOfHint.numOptions();
+	}
+
+	@Override
+	public int knowledgeEliminate() {
+		CardKnowledge k = new CardKnowledge();
+		k.eliminateCard(Card.of(Colors.RED, 5));
+		k.eliminateCard(Card.of(Colors.BLUE, 5));
+		k.eliminateColor(Colors.YELLOW);
+		k.eliminateValue(1);
+		k.eliminateNonPlayableOptions(board);
+		return k.numOptions();
+	}
+
+	@Override
+	public double probablyPlayable() {
+		return hinted.probablyPlayable(player.remaining, board);
+	}
+
+	@Override
+	public Object copyBoard() {
+		return new Board(board);
+	}
+
+	@Override
+	public int boardPlay() {
+		Board b = new Board();
+		for (int clr = Colors.MIN_COLOR; clr <= Colors.MAX_COLOR; clr++) {
+			for (int val = Card.MIN_VALUE; val <= Card.MAX_VALUE; val++) {
+				b.play(Card.of(clr, val));
+			}
+		}
+		return b.getTableauScore();
+	}
+
+	@Override
+	public int boardDiscard() {
+		Board b = new Board();
+		for (int id = Card.NUM_CARDS - 1; id >= 0; id--) {
+			b.discard(Card.ofId(id));
+		}
+		return b.getDiscards().size();
+	}
+}
@@ -0,0 +1,34 @@
+package hanabi.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Board copies, and filling a fresh board by playing or discarding every card.
+ */
+@State(Scope.Thread)
+public class BoardBenchmark {
+	private Workloads workloads;
+
+	@Setup
+	public void setUp() {
+		workloads = Workloads.create();
+	}
+
+	@Benchmark
+	public Object copy() {
+		return workloads.copyBoard();
+	}
+
+	@Benchmark
+	public int play() {
+		return workloads.boardPlay();
+	}
+
+	@Benchmark
+	public int discard() {
+		return workloads.boardDiscard();
+	}
+}
@@ -0,0 +1,34 @@
+package hanabi.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Knowledge updates from hints and eliminations, and the play-probability estimate.
+ */
+@State(Scope.Thread)
+public class CardKnowledgeBenchmark {
+	private Workloads workloads;
+
+	@Setup
+	public void setUp() {
+		workloads = Workloads.create();
+	}
+
+	@Benchmark
+	public int hints() {
+		return workloads.knowledgeHints();
+	}
+
+	@Benchmark
+	public int eliminate() {
+		return workloads.knowledgeEliminate();
+	}
+
+	@Benchmark
+	public double probablyPlayable() {
+		return workloads.probablyPlayable();
+	}
+}
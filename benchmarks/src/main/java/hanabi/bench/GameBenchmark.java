@@ -0,0 +1,35 @@
+package hanabi.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Whole games, and single turns through the String and packed-action entry points of Hanabi.
+ */
+@State(Scope.Thread)
+public class GameBenchmark {
+	private Workloads workloads;
+	private long seed;
+
+	@Setup
+	public void setUp() {
+		workloads = Workloads.create();
+	}
+
+	@Benchmark
+	public int play() {
+		return workloads.playGame(seed++);
+	}
+
+	@Benchmark
+	public int parseAndHandleResponse() {
+		return workloads.parseAndHandleResponse();
+	}
+
+	@Benchmark
+	public int handleAction() {
+		return workloads.handleAction();
+	}
+}
@@ -0,0 +1,29 @@
+package hanabi.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One decision of the rule-based Player, through both the String and the packed-action API.
+ */
+@State(Scope.Thread)
+public class PlayerBenchmark {
+	private Workloads workloads;
+
+	@Setup
+	public void setUp() {
+		workloads = Workloads.create();
+	}
+
+	@Benchmark
+	public String ask() {
+		return workloads.ask();
+	}
+
+	@Benchmark
+	public int askAction() {
+		return workloads.askAction();
+	}
+}
@@ -0,0 +1,84 @@
+package hanabi.bench;
+
+/**
+ * The engine operations measured by the benchmarks.
+ * <p>
+ * The engine classes live in the unnamed package, which code in a named package cannot refer to, and JMH
+ * refuses benchmarks in the unnamed package. So the workloads are written next to the engine, in
+ * BenchmarkWorkloads, and the benchmarks reach them through this interface. Each call is a single
+ * monomorphic interface call, which the JIT inlines.
+ */
+public interface Workloads {
+	/**
+	 * @return the workloads implementation, with fresh state
+	 */
+	static Workloads create() {
+		try {
+			return (Workloads) Class.forName("BenchmarkWorkloads").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("BenchmarkWorkloads is missing from the classpath", e);
+		}
+	}
+
+	/**
+	 * Plays a whole game between two rule-based Players.
+	 * @return the final score
+	 */
+	int playGame(long seed);
+
+	/**
+	 * Feeds the next command of a running game through Hanabi.parseAndHandleResponse().
+	 * @return 1 while the game is still running, 0 once it has ended
+	 */
+	int parseAndHandleResponse();
+
+	/**
+	 * Feeds the next command of a running game through Hanabi.handleAction().
+	 * @return 1 while the game is still running, 0 once it has ended
+	 */
+	int handleAction();
+
+	/**
+	 * @return the command chosen by Player.ask() in a fixed mid-game position
+	 */
+	String ask();
+
+	/**
+	 * @return the action chosen by Player.askAction() in a fixed mid-game position
+	 */
+	int askAction();
+
+	/**
+	 * Applies a color and a number hint to a fresh CardKnowledge, as seen by a hinted and an unhinted card.
+	 * @return the number of options left
+	 */
+	int knowledgeHints();
+
+	/**
+	 * Eliminates cards, colors and values from a fresh CardKnowledge.
+	 * @return the number of options left
+	 */
+	int knowledgeEliminate();
+
+	/**
+	 * @return CardKnowledge.probablyPlayable() for a partly hinted card in a mid-game position
+	 */
+	double probablyPlayable();
+
+	/**
+	 * @return a copy of a mid-game Board
+	 */
+	Object copyBoard();
+
+	/**
+	 * Plays every card onto a fresh Board.
+	 * @return the final score
+	 */
+	int boardPlay();
+
+	/**
+	 * Discards one of every card onto a fresh Board, then reads the sorted discards.
+	 * @return the number of discards
+	 */
+	int boardDiscard();
+}
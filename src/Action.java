@@ -0,0 +1,140 @@
+import java.util.StringTokenizer;
+
+/**
+ * Encodes player moves as packed ints, so the engine can dispatch on them without building or parsing Strings.
+ * <p>
+ * An action holds its type in bits 16 and up, its first argument (the play/discard index, or the hinted
+ * number or color) in bits 8-15, and its second argument (the draw index) in bits 0-7. Arguments are stored
+ * as signed bytes, so out-of-range indices such as -1 survive the round trip and are rejected by the engine
+ * rather than here.
+ */
+public final class Action {
+	public static final int PLAY = 1;
+	public static final int DISCARD = 2;
+	public static final int NUMBERHINT = 3;
+	public static final int COLORHINT = 4;
+
+	private Action() {
+	}
+
+	/**
+	 * @return an action that plays the card at index and draws a replacement to drawIndex
+	 */
+	public static int play(int index, int drawIndex) {
+		return pack(PLAY, index, drawIndex);
+	}
+
+	/**
+	 * @return an action that discards the card at index and draws a replacement to drawIndex
+	 */
+	public static int discard(int index, int drawIndex) {
+		return pack(DISCARD, index, drawIndex);
+	}
+
+	/**
+	 * @return an action that tells the partner which of their cards have the given value
+	 */
+	public static int numberHint(int number) {
+		return pack(NUMBERHINT, number, 0);
+	}
+
+	/**
+	 * @return an action that tells the partner which of their cards have the given color
+	 */
+	public static int colorHint(int color) {
+		return pack(COLORHINT, color, 0);
+	}
+
+	/**
+	 * @return PLAY, DISCARD, NUMBERHINT or COLORHINT
+	 */
+	public static int type(int action) {
+		return action >> 16;
+	}
+
+	/**
+	 * @return the hand index played or discarded by a PLAY or DISCARD action
+	 */
+	public static int index(int action) {
+		return (byte) (action >> 8);
+	}
+
+	/**
+	 * @return the hand index a PLAY or DISCARD action draws its replacement to
+	 */
+	public static int drawIndex(int action) {
+		return (byte) action;
+	}
+
+	/**
+	 * @return the number or color hinted by a NUMBERHINT or COLORHINT action
+	 */
+	public static int hint(int action) {
+		return (byte) (action >> 8);
+	}
+
+	private static int pack(int type, int first, int second) {
+		if (first != (byte) first || second != (byte) second) {
+			throw new IllegalArgumentException("Action.pack() - argument out of range: " + first + " " + second);
+		}
+		return (type << 16) | ((first & 0xFF) << 8) | (second & 0xFF);
+	}
+
+	/**
+	 * Reads an action in the String format described in Player.ask().
+	 * @param command A command such as "PLAY 2 0" or "COLORHINT 3"
+	 * @return the packed action
+	 * @throws IllegalArgumentException In case of malformed Strings
+	 */
+	public static int parse(String command) throws IllegalArgumentException {
+		StringTokenizer tokens = new StringTokenizer(command);
+		if (!tokens.hasMoreTokens()) {
+			throw new IllegalArgumentException("Action.parse() - Empty response string");
+		}
+		String type = tokens.nextToken();
+
+		switch (type) {
+			case "PLAY" -> {
+				int playIndex = nextInt(tokens, "Play with no play index provided");
+				int drawIndex = nextInt(tokens, "Play with no draw index provided");
+				return play(playIndex, drawIndex);
+			}
+			case "DISCARD" -> {
+				int discardIndex = nextInt(tokens, "Discard with no discard index provided");
+				int drawIndex = nextInt(tokens, "Discard with no draw index provided");
+				return discard(discardIndex, drawIndex);
+			}
+			case "NUMBERHINT" -> {
+				return numberHint(nextInt(tokens, "Numberhint with no number provided"));
+			}
+			case "COLORHINT" -> {
+				return colorHint(nextInt(tokens, "Colorhint with no color provided"));
+			}
+			default -> throw new IllegalArgumentException("Action.parse() - illegal command " + type);
+		}
+	}
+
+	private static int nextInt(StringTokenizer tokens, String error) {
+		if (tokens.hasMoreTokens()) {
+			try {
+				return Integer.parseInt(tokens.nextToken());
+			} catch (NumberFormatException e) {
+				// Fall through to the missing-argument error.
+			}
+		}
+		throw new IllegalArgumentException("Action.parse() - " + error);
+	}
+
+	/**
+	 * @return the String form of action, as accepted by parse()
+	 */
+	public static String toString(int action) {
+		return switch (type(action)) {
+			case PLAY -> "PLAY " + index(action) + " " + drawIndex(action);
+			case DISCARD -> "DISCARD " + index(action) + " " + drawIndex(action);
+			case NUMBERHINT -> "NUMBERHINT " + hint(action);
+			case COLORHINT -> "COLORHINT " + hint(action);
+			default -> "INVALID";
+		};
+	}
+}
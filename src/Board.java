@@ -1,5 +1,7 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Represents the Hanabi game state that is visible to the players.
@@ -7,63 +9,201 @@ import java.util.Collections;
  * This includes the number of fuses, number of cards in the deck, number of hints,
  * the tableau, and the discards.
  */
-public class Board {
+public class Board implements BoardView {
 	public int numHints;
-	public final int MAX_HINTS = 8;
+	public static final int MAX_HINTS = 8;
 	public int deckSize;
 	public int numFuses;
-	public final int MAX_FUSES = 3;
-	public ArrayList<Integer> tableau;
-	public ArrayList<Card> discards;
+	public static final int MAX_FUSES = 3;
+	// How many ints save() writes.
+	static final int SAVED_INTS = 3 + Colors.MAX_COLOR + 1 + Card.NUM_CARDS;
+
+	// Highest value played in each color.
+	private final int[] tableau;
+	// Number of discarded copies of each card, indexed by card id.
+	private final int[] discardCounts;
+	// Sum of the tableau, kept up to date by play().
+	private int score;
+	// Sorted discards, built on demand; null whenever a discard has happened since it was last built.
+	private List<Card> discards;
+	// Zobrist hash of the tableau and discards, kept up to date by play() and discard(); see zobristHash().
+	private long hash;
+
+	// Handed to players in place of this board, so they can read it but not change it.
+	private final BoardView view = new ReadOnlyView();
 	
 	public Board() {
 		numHints = MAX_HINTS;
 		numFuses = MAX_FUSES;
 		deckSize = 50;
-		tableau = new ArrayList<>();
-		for (int i = 0; i < 5; i++) {
-			tableau.add(0);
-		}
-		discards = new ArrayList<>();
+		tableau = new int[Colors.MAX_COLOR + 1];
+		discardCounts = new int[Card.NUM_CARDS];
 	}
 	
 	public Board(Board b) {
 		this.numHints = b.numHints;
 		this.deckSize = b.deckSize;
 		this.numFuses = b.numFuses;
-		this.tableau = new ArrayList<>(b.tableau);
-		this.discards = new ArrayList<>(b.discards);
+		this.tableau = b.tableau.clone();
+		this.discardCounts = b.discardCounts.clone();
+		this.score = b.score;
+		this.discards = b.discards;	// unmodifiable, so safe to share
+		this.hash = b.hash;
+	}
+
+	/**
+	 * Overwrites this board with the state of b, without allocating.
+	 */
+	public void copyFrom(Board b) {
+		this.numHints = b.numHints;
+		this.deckSize = b.deckSize;
+		this.numFuses = b.numFuses;
+		System.arraycopy(b.tableau, 0, tableau, 0, tableau.length);
+		System.arraycopy(b.discardCounts, 0, discardCounts, 0, discardCounts.length);
+		this.score = b.score;
+		this.discards = b.discards;
+		this.hash = b.hash;
+	}
+
+	/**
+	 * Puts this board back in its starting state, as if newly constructed.
+	 */
+	public void reset() {
+		numHints = MAX_HINTS;
+		numFuses = MAX_FUSES;
+		deckSize = 50;
+		Arrays.fill(tableau, 0);
+		Arrays.fill(discardCounts, 0);
+		score = 0;
+		discards = null;
+		hash = 0;
+	}
+
+	/**
+	 * Writes this board's state into dst from offset, in SAVED_INTS ints; load() reads it back.
+	 */
+	void save(int[] dst, int offset) {
+		dst[offset] = numHints;
+		dst[offset + 1] = numFuses;
+		dst[offset + 2] = deckSize;
+		System.arraycopy(tableau, 0, dst, offset + 3, tableau.length);
+		System.arraycopy(discardCounts, 0, dst, offset + 3 + tableau.length, discardCounts.length);
+	}
+
+	/**
+	 * Overwrites this board with a state written by save().
+	 */
+	void load(int[] src, int offset) {
+		numHints = src[offset];
+		numFuses = src[offset + 1];
+		deckSize = src[offset + 2];
+		System.arraycopy(src, offset + 3, tableau, 0, tableau.length);
+		System.arraycopy(src, offset + 3 + tableau.length, discardCounts, 0, discardCounts.length);
+		score = 0;
+		hash = 0;
+		for (int color = Colors.MIN_COLOR; color <= Colors.MAX_COLOR; color++) {
+			score += tableau[color];
+			hash ^= Zobrist.tableau(color, tableau[color]);
+		}
+		for (int id = 0; id < Card.NUM_CARDS; id++) {
+			for (int k = 0; k < discardCounts[id]; k++) {
+				hash ^= Zobrist.discard(id, k);
+			}
+		}
+		discards = null;
+	}
+
+	/**
+	 * @return a read-only view backed by this board
+	 */
+	public BoardView view() {
+		return view;
 	}
 	
 	@Override
 	public String toString() {
-		String result = "";
-		result += "  Hints remaining: " + numHints + "\n";
-		result += "  Fuses remaining: " + numFuses + "\n";
-		result += "  Cards remaining in deck: " + deckSize + "\n";
-		result += "  Tableau: Red " + tableau.get(Colors.RED) + ", Yellow " + tableau.get(Colors.YELLOW) +
-				", Blue " + tableau.get(Colors.BLUE) + ", Green " + tableau.get(Colors.GREEN) +
-				", White " + tableau.get(Colors.WHITE) + "\n";
-		result += "  Discards: " + discards.toString();
-		return result;
+		return new StringBuilder(160)
+				.append("  Hints remaining: ").append(numHints).append('\n')
+				.append("  Fuses remaining: ").append(numFuses).append('\n')
+				.append("  Cards remaining in deck: ").append(deckSize).append('\n')
+				.append("  Tableau: Red ").append(tableau[Colors.RED]).append(", Yellow ").append(tableau[Colors.YELLOW])
+				.append(", Blue ").append(tableau[Colors.BLUE]).append(", Green ").append(tableau[Colors.GREEN])
+				.append(", White ").append(tableau[Colors.WHITE]).append('\n')
+				.append("  Discards: ").append(getDiscards())
+				.toString();
 	}
 	
 	public void discard(Card c) {
-		discards.add(c);
-		Collections.sort(discards);
+		hash ^= Zobrist.discard(c.id(), discardCounts[c.id()]);
+		discardCounts[c.id()]++;
+		discards = null;
+	}
+
+	@Override
+	public int getNumHints() {
+		return numHints;
+	}
+
+	@Override
+	public int getMaxHints() {
+		return MAX_HINTS;
+	}
+
+	@Override
+	public int getNumFuses() {
+		return numFuses;
+	}
+
+	@Override
+	public int getMaxFuses() {
+		return MAX_FUSES;
+	}
+
+	@Override
+	public int getDeckSize() {
+		return deckSize;
+	}
+
+	@Override
+	public int getTableau(int color) {
+		return tableau[color];
+	}
+
+	@Override
+	public List<Card> getDiscards() {
+		if (discards == null) {
+			// Card ids are in sorted order, so walking the counts yields a sorted list.
+			ArrayList<Card> sorted = new ArrayList<>();
+			for (int id = 0; id < Card.NUM_CARDS; id++) {
+				for (int k = 0; k < discardCounts[id]; k++) {
+					sorted.add(Card.ofId(id));
+				}
+			}
+			discards = Collections.unmodifiableList(sorted);
+		}
+		return discards;
+	}
+
+	@Override
+	public int getDiscardCount(int id) {
+		return discardCounts[id];
 	}
 	
+	@Override
 	public int getTableauScore() {
-        return tableau.stream().reduce(Integer::sum).orElse(0);
+        return score;
 	}
 	
+	@Override
 	public boolean isLegalPlay(Card c) {
-        return (c.value == (tableau.get(c.color) + 1));
+        return (c.value == (tableau[c.color] + 1));
 	}
 	
 	public boolean play(Card c) {
 		if (isLegalPlay(c)) {
-			tableau.set(c.color, tableau.get(c.color) + 1);
+			hash ^= Zobrist.tableau(c.color, c.value - 1) ^ Zobrist.tableau(c.color, c.value);
+			tableau[c.color]++;
+			score++;
 			// Playing a 5 adds a hint.
 			if (c.value == 5 && numHints < MAX_HINTS) {
 				numHints++;
@@ -77,4 +217,84 @@ public class Board {
 			return false;
 		}
 	}
+
+	@Override
+	public Board snapshot() {
+		return new Board(this);
+	}
+
+	@Override
+	public long zobristHash() {
+		return hash ^ Zobrist.counters(numHints, numFuses, deckSize);
+	}
+
+	/**
+	 * Forwards every read to the enclosing board; it has no way to reach the board's mutators.
+	 */
+	private final class ReadOnlyView implements BoardView {
+		@Override
+		public int getNumHints() {
+			return numHints;
+		}
+
+		@Override
+		public int getMaxHints() {
+			return MAX_HINTS;
+		}
+
+		@Override
+		public int getNumFuses() {
+			return numFuses;
+		}
+
+		@Override
+		public int getMaxFuses() {
+			return MAX_FUSES;
+		}
+
+		@Override
+		public int getDeckSize() {
+			return deckSize;
+		}
+
+		@Override
+		public int getTableau(int color) {
+			return tableau[color];
+		}
+
+		@Override
+		public List<Card> getDiscards() {
+			return Board.this.getDiscards();
+		}
+
+		@Override
+		public int getDiscardCount(int id) {
+			return discardCounts[id];
+		}
+
+		@Override
+		public int getTableauScore() {
+			return score;
+		}
+
+		@Override
+		public boolean isLegalPlay(Card c) {
+			return Board.this.isLegalPlay(c);
+		}
+
+		@Override
+		public Board snapshot() {
+			return new Board(Board.this);
+		}
+
+		@Override
+		public long zobristHash() {
+			return Board.this.zobristHash();
+		}
+
+		@Override
+		public String toString() {
+			return Board.this.toString();
+		}
+	}
 }
@@ -0,0 +1,48 @@
+import java.util.List;
+
+/**
+ * A read-only view of the visible game state.
+ * <p>
+ * The game hands players views backed by its live Board, so they always reflect the current state and cost
+ * nothing to pass around. A player that wants to keep the state of a particular moment should call snapshot().
+ */
+public interface BoardView {
+	int getNumHints();
+
+	int getMaxHints();
+
+	int getNumFuses();
+
+	int getMaxFuses();
+
+	int getDeckSize();
+
+	/**
+	 * @return the highest value played so far in the given color, or 0 if none has been played
+	 */
+	int getTableau(int color);
+
+	/**
+	 * @return the discarded cards, sorted; the list cannot be modified
+	 */
+	List<Card> getDiscards();
+
+	/**
+	 * @return how many copies of the card with the given id have been discarded, including misplays
+	 */
+	int getDiscardCount(int id);
+
+	int getTableauScore();
+
+	boolean isLegalPlay(Card c);
+
+	/**
+	 * @return an independent copy of the current state
+	 */
+	Board snapshot();
+
+	/**
+	 * @return a 64-bit Zobrist hash of the tableau, discards and counters; equal boards hash the same
+	 */
+	long zobristHash();
+}
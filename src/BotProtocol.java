@@ -0,0 +1,120 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The wire format between a BotServer and the bot processes that connect to it, such as RemoteBot.
+ * <p>
+ * Everything is sent as frames: a 4-byte big-endian length, counting the bytes after it, then a type byte, the
+ * 4-byte id of the game the frame is about, the seat (0 or 1) it is for, and a payload. A connection carries any
+ * number of games at once, and a bot plays each seat of each game as a separate player.
+ * <p>
+ * The server sends START when a game begins, ASK when it is a seat's turn, one of the TELL frames for each
+ * Player.tell...() callback, and END when the game is over. Cards are sent as their one-byte ids, -1 for none;
+ * hands as a size byte then that many card ids; hint indices as a one-byte mask; and boards as Board.SAVED_INTS
+ * bytes in the order Board.save() uses. The bot answers each ASK with an ACTION frame whose payload is the
+ * command in Player.ask()'s text grammar, e.g. "PLAY 0 0" or "COLORHINT 3", in UTF-8.
+ * <p>
+ * Payloads, by type:
+ * <pre>
+ * START                 (none)
+ * ASK                   handSize, partnerHand, board
+ * TELL_PARTNER_PLAY     index, card, draw, drawIndex, legal, startHand, finalHand, board
+ * TELL_PARTNER_DISCARD  index, card, draw, drawIndex, startHand, finalHand, board
+ * TELL_YOUR_PLAY        index, card, drawIndex, drawSucceeded, legal, board
+ * TELL_YOUR_DISCARD     index, card, drawIndex, drawSucceeded, board
+ * TELL_COLOR_HINT       color, mask, partnerHand, board
+ * TELL_NUMBER_HINT      number, mask, partnerHand, board
+ * END                   score
+ * ACTION                command text
+ * </pre>
+ */
+final class BotProtocol {
+	static final byte START = 1;
+	static final byte ASK = 2;
+	static final byte TELL_PARTNER_PLAY = 3;
+	static final byte TELL_PARTNER_DISCARD = 4;
+	static final byte TELL_YOUR_PLAY = 5;
+	static final byte TELL_YOUR_DISCARD = 6;
+	static final byte TELL_COLOR_HINT = 7;
+	static final byte TELL_NUMBER_HINT = 8;
+	static final byte END = 9;
+	static final byte ACTION = 10;
+
+	// Type, game id and seat.
+	static final int HEADER_BYTES = 1 + Integer.BYTES + 1;
+	// No frame in either direction is longer than this, length field included.
+	static final int MAX_FRAME = 256;
+
+	private BotProtocol() {
+	}
+
+	/**
+	 * Starts a frame in out, which must have MAX_FRAME bytes free; endFrame() fills in its length.
+	 * @return where the frame starts, for endFrame()
+	 */
+	static int beginFrame(ByteBuffer out, byte type, int gameId, int seat) {
+		int start = out.position();
+		out.putInt(0).put(type).putInt(gameId).put((byte) seat);
+		return start;
+	}
+
+	static void endFrame(ByteBuffer out, int start) {
+		out.putInt(start, out.position() - start - Integer.BYTES);
+	}
+
+	static void putCard(ByteBuffer out, Card card) {
+		out.put((byte) (card == null ? -1 : card.id()));
+	}
+
+	static void putHand(ByteBuffer out, HandView hand) {
+		out.put((byte) hand.size());
+		for (int i = 0; i < hand.size(); i++) {
+			out.put((byte) hand.getId(i));
+		}
+	}
+
+	/**
+	 * Overwrites hand with one written by putHand().
+	 */
+	static void getHand(ByteBuffer in, Hand hand) {
+		hand.clear();
+		int size = in.get();
+		for (int i = 0; i < size; i++) {
+			hand.addId(i, in.get());
+		}
+	}
+
+	static void putBoard(ByteBuffer out, BoardView board) {
+		out.put((byte) board.getNumHints()).put((byte) board.getNumFuses()).put((byte) board.getDeckSize());
+		for (int clr = Colors.MIN_COLOR; clr <= Colors.MAX_COLOR; clr++) {
+			out.put((byte) board.getTableau(clr));
+		}
+		for (int id = 0; id < Card.NUM_CARDS; id++) {
+			out.put((byte) board.getDiscardCount(id));
+		}
+	}
+
+	/**
+	 * Overwrites board with one written by putBoard().
+	 * @param scratch At least Board.SAVED_INTS long
+	 */
+	static void getBoard(ByteBuffer in, Board board, int[] scratch) {
+		for (int i = 0; i < Board.SAVED_INTS; i++) {
+			scratch[i] = in.get();
+		}
+		board.load(scratch, 0);
+	}
+
+	static void putText(ByteBuffer out, String text) {
+		out.put(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the rest of the frame ending at end, as text
+	 */
+	static String getText(ByteBuffer in, int end) {
+		byte[] bytes = new byte[end - in.position()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,522 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays games between bots running in other processes, which connect over a local socket and speak BotProtocol.
+ * <p>
+ * A single thread drives every game through one Selector, so thousands of games can be in flight at once without
+ * a thread each. Each game is an ordinary Hanabi whose two seats are listened to by proxies: the tell...() callbacks
+ * Hanabi makes on them are written out as frames, and instead of Hanabi asking players for actions in a loop, the
+ * server sends an ASK and carries on with the game when the ACTION comes back. Games are seeded exactly as Driver.simulateGames()
+ * seeds them, so a remote bot playing the rule-based Player scores exactly what the in-process one does.
+ * <p>
+ * As in Hanabi.playSafely(), a bot that answers with an illegal action loses that game with a score of 0, and the
+ * error is counted in the result. So does a bot that has not answered an ASK by its deadline, with
+ * GameError.TIMEOUT; the deadline counts from when the ASK is queued, so it also has to cover the frames of the
+ * bot's other games ahead of it. An ACTION that arrives after its game timed out is ignored. A bot that breaks the
+ * protocol or disconnects loses all its games in flight with GameError.PLAYER_EXCEPTION, and the rest of the run
+ * carries on with any other bots.
+ */
+public class BotServer implements Closeable {
+	// Games in flight at once, across all bots, unless playGames() is told otherwise.
+	public static final int DEFAULT_MAX_CONCURRENT = 4096;
+	// How long a bot has to answer each ASK, unless playGames() is told otherwise.
+	public static final long DEFAULT_MILLIS_PER_MOVE = 10_000;
+	// The command a bot sends when its player threw, rather than an action.
+	static final String ERROR_COMMAND = "ERROR";
+
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final ServerSocketChannel listener;
+	private final Selector selector;
+	private final List<Connection> bots = new ArrayList<>();
+
+	// The run in progress.
+	private final Map<Integer, Game> games = new HashMap<>();
+	// Games in the order their ASKs were sent. A game asked again is queued again; see overdue().
+	private final ArrayDeque<Game> asked = new ArrayDeque<>();
+	private long nanosPerMove;
+	private SimulationResult result;
+	private int finished;
+	// Game ids run on across runs, so that a late ACTION can never be taken for a game of a later run.
+	private int nextId;
+
+	/**
+	 * One connected bot process.
+	 */
+	private final class Connection {
+		final SocketChannel channel;
+		final SelectionKey key;
+		// Frames read but not yet handled, and frames written but not yet sent; both left in write mode.
+		ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+		ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+		boolean alive = true;
+		// Games of this bot that timed out; the ACTION still owed for each is dropped when it comes.
+		final Set<Integer> timedOut = new HashSet<>();
+
+		Connection(SocketChannel channel) throws IOException {
+			this.channel = channel;
+			channel.configureBlocking(false);
+			key = channel.register(selector, SelectionKey.OP_READ, this);
+		}
+
+		/**
+		 * Makes room in out for another frame.
+		 */
+		ByteBuffer frame() {
+			if (out.remaining() < BotProtocol.MAX_FRAME) {
+				ByteBuffer bigger = ByteBuffer.allocate(out.capacity() * 2);
+				out.flip();
+				bigger.put(out);
+				out = bigger;
+			}
+			return out;
+		}
+	}
+
+	/**
+	 * A game in flight.
+	 */
+	private static final class Game {
+		final int id;
+		final Connection bot;
+		final Hanabi hanabi;
+		// When the outstanding ASK was sent, and how many entries the game has in asked.
+		long askedAt;
+		int queued;
+
+		Game(int id, Connection bot, long seed) {
+			this.id = id;
+			this.bot = bot;
+			hanabi = new Hanabi(new RemoteSeat(bot, id, 0), new RemoteSeat(bot, id, 1), seed);
+		}
+	}
+
+	/**
+	 * Stands in for a remote bot in one seat of one game, forwarding Hanabi's callbacks to it.
+	 */
+	private static final class RemoteSeat implements GameListener {
+		private final Connection bot;
+		private final int gameId;
+		private final int seat;
+
+		RemoteSeat(Connection bot, int gameId, int seat) {
+			this.bot = bot;
+			this.gameId = gameId;
+			this.seat = seat;
+		}
+
+		@Override
+		public void tellPartnerPlay(HandView startHand, Card play, int playIndex, Card draw, int drawIndex,
+				HandView finalHand, boolean wasLegalPlay, BoardView boardState) {
+			ByteBuffer out = bot.frame();
+			int start = BotProtocol.beginFrame(out, BotProtocol.TELL_PARTNER_PLAY, gameId, seat);
+			out.put((byte) playIndex);
+			BotProtocol.putCard(out, play);
+			BotProtocol.putCard(out, draw);
+			out.put((byte) drawIndex).put((byte) (wasLegalPlay ? 1 : 0));
+			BotProtocol.putHand(out, startHand);
+			BotProtocol.putHand(out, finalHand);
+			BotProtocol.putBoard(out, boardState);
+			BotProtocol.endFrame(out, start);
+		}
+
+		@Override
+		public void tellPartnerDiscard(HandView startHand, Card discard, int disIndex, Card draw, int drawIndex,
+				HandView finalHand, BoardView boardState) {
+			ByteBuffer out = bot.frame();
+			int start = BotProtocol.beginFrame(out, BotProtocol.TELL_PARTNER_DISCARD, gameId, seat);
+			out.put((byte) disIndex);
+			BotProtocol.putCard(out, discard);
+			BotProtocol.putCard(out, draw);
+			out.put((byte) drawIndex);
+			BotProtocol.putHand(out, startHand);
+			BotProtocol.putHand(out, finalHand);
+			BotProtocol.putBoard(out, boardState);
+			BotProtocol.endFrame(out, start);
+		}
+
+		@Override
+		public void tellYourPlay(Card play, int playIndex, int drawIndex, boolean drawSucceeded,
+				boolean wasLegalPlay, BoardView boardState) {
+			ByteBuffer out = bot.frame();
+			int start = BotProtocol.beginFrame(out, BotProtocol.TELL_YOUR_PLAY, gameId, seat);
+			out.put((byte) playIndex);
+			BotProtocol.putCard(out, play);
+			out.put((byte) drawIndex).put((byte) (drawSucceeded ? 1 : 0)).put((byte) (wasLegalPlay ? 1 : 0));
+			BotProtocol.putBoard(out, boardState);
+			BotProtocol.endFrame(out, start);
+		}
+
+		@Override
+		public void tellYourDiscard(Card discard, int discardIndex, int drawIndex, boolean drawSucceeded,
+				BoardView boardState) {
+			ByteBuffer out = bot.frame();
+			int start = BotProtocol.beginFrame(out, BotProtocol.TELL_YOUR_DISCARD, gameId, seat);
+			out.put((byte) discardIndex);
+			BotProtocol.putCard(out, discard);
+			out.put((byte) drawIndex).put((byte) (drawSucceeded ? 1 : 0));
+			BotProtocol.putBoard(out, boardState);
+			BotProtocol.endFrame(out, start);
+		}
+
+		@Override
+		public void tellColorHint(int color, ArrayList<Integer> indices, HandView partnerHand, BoardView boardState) {
+			tellHint(BotProtocol.TELL_COLOR_HINT, color, indices, partnerHand, boardState);
+		}
+
+		@Override
+		public void tellNumberHint(int number, ArrayList<Integer> indices, HandView partnerHand,
+				BoardView boardState) {
+			tellHint(BotProtocol.TELL_NUMBER_HINT, number, indices, partnerHand, boardState);
+		}
+
+		private void tellHint(byte type, int hint, ArrayList<Integer> indices, HandView partnerHand,
+				BoardView boardState) {
+			int mask = 0;
+			for (int i : indices) {
+				mask |= 1 << i;
+			}
+			ByteBuffer out = bot.frame();
+			int start = BotProtocol.beginFrame(out, type, gameId, seat);
+			out.put((byte) hint).put((byte) mask);
+			BotProtocol.putHand(out, partnerHand);
+			BotProtocol.putBoard(out, boardState);
+			BotProtocol.endFrame(out, start);
+		}
+	}
+
+	/**
+	 * Listens for bots on the loopback interface.
+	 * @param port The port to listen on; 0 for any free port
+	 */
+	public BotServer(int port) throws IOException {
+		listener = ServerSocketChannel.open();
+		listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		selector = Selector.open();
+	}
+
+	/**
+	 * @return the port bots should connect to
+	 */
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) listener.getLocalAddress()).getPort();
+	}
+
+	/**
+	 * Waits for count more bots to connect. Games are only dealt to bots that have connected.
+	 */
+	public void awaitBots(int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			bots.add(new Connection(listener.accept()));
+		}
+	}
+
+	/**
+	 * Plays numGames games as below, giving bots DEFAULT_MILLIS_PER_MOVE to answer each ASK.
+	 */
+	public SimulationResult playGames(int numGames, long masterSeed, int maxConcurrent) throws IOException {
+		return playGames(numGames, masterSeed, maxConcurrent, DEFAULT_MILLIS_PER_MOVE);
+	}
+
+	/**
+	 * Plays numGames games, each with one connected bot in both seats, spreading them round-robin over the bots.
+	 * @param masterSeed Seeds the games exactly as Driver.simulateGames() does
+	 * @param maxConcurrent The most games to have in flight at once
+	 * @param millisPerMove How long a bot has to answer each ASK before it loses the game with GameError.TIMEOUT
+	 * @return the score distribution; games lost to a misbehaving bot are counted by GameError
+	 * @throws IOException if every bot has disconnected before the games are done
+	 */
+	public SimulationResult playGames(int numGames, long masterSeed, int maxConcurrent, long millisPerMove)
+			throws IOException {
+		if (bots.isEmpty()) {
+			throw new IllegalStateException("BotServer.playGames() - no bots connected; call awaitBots() first");
+		}
+		if (millisPerMove <= 0) {
+			throw new IllegalArgumentException("BotServer.playGames() - bad deadline " + millisPerMove + " ms");
+		}
+		nanosPerMove = TimeUnit.MILLISECONDS.toNanos(millisPerMove);
+		result = new SimulationResult();
+		finished = 0;
+		long[] blockSeeds = Driver.blockSeeds(numGames, masterSeed);
+		SplittableRandom seeds = null;
+		int started = 0;
+		int nextBot = 0;
+		while (finished < numGames) {
+			while (started < numGames && games.size() < maxConcurrent && !liveBots().isEmpty()) {
+				if (started % Driver.GAMES_PER_BLOCK == 0) {
+					seeds = new SplittableRandom(blockSeeds[started / Driver.GAMES_PER_BLOCK]);
+				}
+				List<Connection> live = liveBots();
+				startGame(nextId++, seeds.nextLong(), live.get(nextBot++ % live.size()));
+				started++;
+			}
+			if (finished == numGames) {
+				break;
+			}
+			if (liveBots().isEmpty()) {
+				throw new IOException("BotServer.playGames() - every bot has disconnected");
+			}
+			for (Connection bot : liveBots()) {
+				flush(bot);
+			}
+			long wait = overdue();
+			if (finished == numGames) {
+				break;
+			}
+			if (wait > 0) {
+				selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+			}
+			else {
+				selector.selectNow();
+			}
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				Connection bot = (Connection) key.attachment();
+				if (bot.alive && key.isValid() && key.isReadable()) {
+					read(bot);
+				}
+				if (bot.alive && key.isValid() && key.isWritable()) {
+					flush(bot);
+				}
+			}
+		}
+		for (Connection bot : liveBots()) {
+			flushFully(bot);
+		}
+		asked.clear();
+		return result;
+	}
+
+	private List<Connection> liveBots() {
+		List<Connection> live = new ArrayList<>(bots.size());
+		for (Connection bot : bots) {
+			if (bot.alive) {
+				live.add(bot);
+			}
+		}
+		return live;
+	}
+
+	private void startGame(int id, long seed, Connection bot) {
+		Game game = new Game(id, bot, seed);
+		games.put(id, game);
+		for (int seat = 0; seat < 2; seat++) {
+			ByteBuffer out = bot.frame();
+			BotProtocol.endFrame(out, BotProtocol.beginFrame(out, BotProtocol.START, id, seat));
+		}
+		ask(game);
+	}
+
+	/**
+	 * Ends with GameError.TIMEOUT every game whose ASK has gone unanswered past the deadline.
+	 * @return the nanoseconds until the next ASK is due, or 0 if none is outstanding
+	 */
+	private long overdue() {
+		long now = System.nanoTime();
+		while (!asked.isEmpty()) {
+			Game game = asked.peek();
+			// An entry is stale if its game has ended or been asked again since; the game's latest entry is later.
+			if (games.get(game.id) != game || game.queued > 1) {
+				asked.poll();
+				game.queued--;
+				continue;
+			}
+			long left = game.askedAt + nanosPerMove - now;
+			if (left > 0) {
+				return left;
+			}
+			asked.poll();
+			game.queued--;
+			game.bot.timedOut.add(game.id);
+			finish(game, 0, GameError.TIMEOUT);
+		}
+		return 0;
+	}
+
+	/**
+	 * Asks the game's current player for an action.
+	 */
+	private void ask(Game game) {
+		game.askedAt = System.nanoTime();
+		game.queued++;
+		asked.add(game);
+		GameState state = game.hanabi.getState();
+		int seat = state.currentPlayer;
+		ByteBuffer out = game.bot.frame();
+		int start = BotProtocol.beginFrame(out, BotProtocol.ASK, game.id, seat);
+		out.put((byte) state.hands[seat].size());
+		BotProtocol.putHand(out, state.getHand(1 - seat));
+		BotProtocol.putBoard(out, state.board);
+		BotProtocol.endFrame(out, start);
+	}
+
+	/**
+	 * Carries on game with the action its current player sent.
+	 */
+	private void act(Game game, String command) {
+		int action;
+		try {
+			action = Action.parse(command);
+		}
+		catch (IllegalArgumentException e) {
+			finish(game, 0, command.equals(ERROR_COMMAND) ? GameError.PLAYER_EXCEPTION : GameError.ILLEGAL_COMMAND);
+			return;
+		}
+		GameState state = game.hanabi.getState();
+		int check = state.check(action);
+		if (check != GameError.NONE) {
+			finish(game, 0, check);
+			return;
+		}
+		game.hanabi.handleAction(action);
+		if (game.hanabi.gameEnded()) {
+			finish(game, state.board.numFuses <= 0 ? 0 : state.board.getTableauScore(), GameError.NONE);
+			return;
+		}
+		game.hanabi.switchPlayers();
+		ask(game);
+	}
+
+	private void finish(Game game, int score, int error) {
+		if (game.bot.alive) {
+			for (int seat = 0; seat < 2; seat++) {
+				ByteBuffer out = game.bot.frame();
+				int start = BotProtocol.beginFrame(out, BotProtocol.END, game.id, seat);
+				out.put((byte) score);
+				BotProtocol.endFrame(out, start);
+			}
+		}
+		games.remove(game.id);
+		result.add(score, error);
+		finished++;
+	}
+
+	/**
+	 * Reads what bot has sent and handles every complete frame.
+	 */
+	private void read(Connection bot) {
+		try {
+			if (bot.channel.read(bot.in) < 0) {
+				disconnect(bot);
+				return;
+			}
+		}
+		catch (IOException e) {
+			disconnect(bot);
+			return;
+		}
+		ByteBuffer in = bot.in.flip();
+		while (in.remaining() >= Integer.BYTES) {
+			int length = in.getInt(in.position());
+			if (length < BotProtocol.HEADER_BYTES || length > BotProtocol.MAX_FRAME - Integer.BYTES) {
+				disconnect(bot);
+				return;
+			}
+			if (in.remaining() < Integer.BYTES + length) {
+				break;
+			}
+			int end = in.position() + Integer.BYTES + length;
+			in.getInt();
+			byte type = in.get();
+			int id = in.getInt();
+			Game game = games.get(id);
+			int seat = in.get();
+			if (type == BotProtocol.ACTION && game == null && bot.timedOut.remove(id)) {
+				in.position(end);
+				continue;
+			}
+			if (type != BotProtocol.ACTION || game == null || game.bot != bot
+					|| seat != game.hanabi.getState().currentPlayer) {
+				disconnect(bot);
+				return;
+			}
+			act(game, BotProtocol.getText(in, end));
+		}
+		in.compact();
+	}
+
+	/**
+	 * Sends as much of bot's pending output as the socket will take, and asks to hear when it can take more.
+	 */
+	private void flush(Connection bot) {
+		if (!bot.alive) {
+			return;
+		}
+		try {
+			bot.out.flip();
+			bot.channel.write(bot.out);
+			boolean pending = bot.out.hasRemaining();
+			bot.out.compact();
+			bot.key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+		catch (IOException e) {
+			disconnect(bot);
+		}
+	}
+
+	/**
+	 * Sends the last of bot's output, such as the END frames of a finished run.
+	 */
+	private void flushFully(Connection bot) throws IOException {
+		bot.out.flip();
+		while (bot.out.hasRemaining() && bot.alive) {
+			if (bot.channel.write(bot.out) == 0) {
+				selector.selectNow();
+				Thread.onSpinWait();
+			}
+		}
+		bot.out.clear();
+	}
+
+	/**
+	 * Drops bot, losing every game it has in flight.
+	 */
+	private void disconnect(Connection bot) {
+		bot.alive = false;
+		bot.key.cancel();
+		try {
+			bot.channel.close();
+		}
+		catch (IOException e) {
+			// Already gone.
+		}
+		for (Game game : new ArrayList<>(games.values())) {
+			if (game.bot == bot) {
+				finish(game, 0, GameError.PLAYER_EXCEPTION);
+			}
+		}
+	}
+
+	/**
+	 * Disconnects every bot and stops listening.
+	 */
+	@Override
+	public void close() throws IOException {
+		for (Connection bot : bots) {
+			bot.channel.close();
+		}
+		bots.clear();
+		selector.close();
+		listener.close();
+	}
+}
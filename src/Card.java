@@ -2,17 +2,79 @@ public class Card implements Comparable<Card> {
 	public static final int MIN_VALUE = 1;
 	public static final int MAX_VALUE = 5;
 
+	// Number of distinct cards; ids run from 0 to NUM_CARDS - 1.
+	public static final int NUM_CARDS = (Colors.MAX_COLOR + 1) * MAX_VALUE;
+
+	// Copies of each value in the deck: three 1s, two each of 2-4, one 5.
+	private static final int[] COPIES = {0, 3, 2, 2, 2, 1};
+
+	// The canonical instance of every card, indexed by id.
+	private static final Card[] TABLE = new Card[NUM_CARDS];
+
+	static {
+		for (int clr = Colors.MIN_COLOR; clr <= Colors.MAX_COLOR; clr++) {
+			for (int val = MIN_VALUE; val <= MAX_VALUE; val++) {
+				TABLE[idOf(clr, val)] = new Card(clr, val);
+			}
+		}
+	}
+
 	public final int color;
 	public final int value;
+	private final int id;
 	
 	public Card(int color, int value) {
 		this.color = color;
 		this.value = value;
+		this.id = idOf(color, value);
 	}
 	
 	public Card(Card c) {
 		this.color = c.color;
 		this.value = c.value;
+		this.id = c.id;
+	}
+
+	/**
+	 * Cards are immutable, so prefer this over the constructor to avoid allocating.
+	 * @return the canonical instance of the given card
+	 */
+	public static Card of(int color, int value) {
+		return TABLE[idOf(color, value)];
+	}
+
+	/**
+	 * @param id A card id, from 0 to NUM_CARDS - 1
+	 * @return the canonical instance of the card with that id
+	 */
+	public static Card ofId(int id) {
+		return TABLE[id];
+	}
+
+	/**
+	 * @return the dense id of the given card: color * 5 + (value - 1)
+	 */
+	public static int idOf(int color, int value) {
+		return color * MAX_VALUE + (value - MIN_VALUE);
+	}
+
+	public static int colorOf(int id) {
+		return id / MAX_VALUE;
+	}
+
+	public static int valueOf(int id) {
+		return id % MAX_VALUE + MIN_VALUE;
+	}
+
+	/**
+	 * @return how many copies of a card with the given value are in a full deck
+	 */
+	public static int numCopies(int value) {
+		return COPIES[value];
+	}
+
+	public int id() {
+		return id;
 	}
 	
 	@Override
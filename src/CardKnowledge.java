@@ -1,20 +1,38 @@
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Tracks possible values for one unknown card
+ * <p>
+ * The possibilities are kept as a 25-bit mask indexed by card id: bit {@link Card#id()}
+ * is set while that card is still an option.
  */
 public class CardKnowledge {
+    static final int ALL_CARDS = (1 << Card.NUM_CARDS) - 1;
+
+    // COLOR_MASKS[c] has the five bits of color c set; VALUE_MASKS[v] has the five bits of value v set
+    private static final int[] COLOR_MASKS = new int[Colors.MAX_COLOR + 1];
+    private static final int[] VALUE_MASKS = new int[Card.MAX_VALUE + 1];
+
+    static {
+        for (int clr = Colors.MIN_COLOR; clr <= Colors.MAX_COLOR; clr++) {
+            for (int val = Card.MIN_VALUE; val <= Card.MAX_VALUE; val++) {
+                int id = Card.idOf(clr, val);
+                COLOR_MASKS[clr] |= 1 << id;
+                VALUE_MASKS[val] |= 1 << id;
+            }
+        }
+    }
+
     public boolean beenHinted;
 
-    private final Set<Card> options;
+    private int options;
 
     /**
      * Allow all possible cards
      */
     public CardKnowledge(){
-        this(null);
+        this((Set<Card>) null);
         beenHinted = false;
     }
 
@@ -23,45 +41,72 @@ public class CardKnowledge {
      * @param impossibleCards - this card could not be any card in impossibleCards
      */
     public CardKnowledge(Set<Card> impossibleCards) {
-        options = new HashSet<>();
+        options = ALL_CARDS;
 
-        for(int clr=Colors.MIN_COLOR; clr<=Colors.MAX_COLOR; clr++) {
-            for (int val=Card.MIN_VALUE; val<=Card.MAX_VALUE; val++) {
-                Card theCard = new Card(clr, val);
-
-                if (impossibleCards == null || !impossibleCards.contains(theCard)) {
-                    options.add(theCard);
-                }
+        if (impossibleCards != null) {
+            for (Card crd : impossibleCards) {
+                options &= ~mask(crd);
             }
         }
     }
 
+    /**
+     * Copy constructor
+     */
+    public CardKnowledge(CardKnowledge other) {
+        options = other.options;
+        beenHinted = other.beenHinted;
+    }
+
+    /**
+     * Allow all cards except those specified in...
+     * @param impossibleMask - this card could not be any card whose id bit is set in impossibleMask
+     */
+    public CardKnowledge(int impossibleMask) {
+        options = ALL_CARDS & ~impossibleMask;
+    }
+
+    /**
+     * Makes this know nothing again, as if newly constructed with impossibleMask.
+     */
+    public void reset(int impossibleMask) {
+        options = ALL_CARDS & ~impossibleMask;
+        beenHinted = false;
+    }
+
+    /**
+     * @return a mask with the id bit of every card this could still be
+     */
+    int getOptions() {
+        return options;
+    }
+
     public int numOptions(){
-        return options.size();
+        return Integer.bitCount(options);
     }
 
     public void knowColor(int clr){
-        options.removeIf(crd -> crd.color != clr);
+        options &= COLOR_MASKS[clr];
     }
 
     public void knowValue(int val){
-        options.removeIf(crd -> crd.value != val);
+        options &= VALUE_MASKS[val];
     }
 
     public void eliminateColor(int clr){
-        options.removeIf(crd -> crd.color == clr);
+        options &= ~COLOR_MASKS[clr];
     }
 
     public void eliminateValue(int val){
-        options.removeIf(crd -> crd.value == val);
+        options &= ~VALUE_MASKS[val];
     }
 
     public void eliminateCard(Card crd){
-        options.remove(crd);
+        options &= ~mask(crd);
     }
 
-    public void eliminateNonPlayableOptions(Board b) {
-        options.removeIf(crd -> !(b.isLegalPlay(crd)));
+    public void eliminateNonPlayableOptions(BoardView b) {
+        options &= playableMask(b);
     }
 
     /**
@@ -69,14 +114,12 @@ public class CardKnowledge {
      * @return the color of the card, or -1 if it could be more than one color
      */
     public int getKnownColor() {
-        int color = options.iterator().next().color;
-
-        for (Card crd : options) {
-            if (crd.color != color) {
-                return -1;
+        for (int clr = Colors.MIN_COLOR; clr <= Colors.MAX_COLOR; clr++) {
+            if ((options & ~COLOR_MASKS[clr]) == 0) {
+                return options == 0 ? -1 : clr;
             }
         }
-        return color;
+        return -1;
     }
 
     /**
@@ -84,53 +127,105 @@ public class CardKnowledge {
      * @return the value of the card, or -1 if it could be more than one value
      */
     public int getKnownValue() {
-        int val = options.iterator().next().value;
-
-        for (Card crd : options) {
-            if (crd.value != val) {
-                return -1;
+        for (int val = Card.MIN_VALUE; val <= Card.MAX_VALUE; val++) {
+            if ((options & ~VALUE_MASKS[val]) == 0) {
+                return options == 0 ? -1 : val;
             }
         }
-        return val;
+        return -1;
+    }
+
+    public boolean isDefinitelyPlayable(BoardView b){
+        return (options & ~playableMask(b)) == 0;
     }
 
-    public boolean isDefinitelyPlayable(Board b){
-        for (Card crd : options) {
-            if (!b.isLegalPlay(crd)) {
-                return false;
+    public boolean couldBePlayable(BoardView b){
+        return (options & playableMask(b)) != 0;
+    }
+
+    public boolean isDiscardable(BoardView b){
+        // Every option must already be on the tableau to be useless
+        return (options & ~deadMask(b)) == 0;
+    }
+
+    public double probablyPlayable(HashMap<Card, Integer> remaining, BoardView b) {
+        int playable = playableMask(b);
+        int totalOptions = 0;
+        int playableOptions = 0;
+        for (int opts = options; opts != 0; opts &= opts - 1) {
+            int id = Integer.numberOfTrailingZeros(opts);
+            int count = remaining.get(Card.ofId(id));
+            if ((playable & (1 << id)) != 0) {
+                playableOptions += count;
             }
+            totalOptions += count;
         }
-        return true;
+        return 1.0 * playableOptions / totalOptions;
     }
 
-    public boolean couldBePlayable(Board b){
-        for (Card crd : options) {
-            if (b.isLegalPlay(crd)) {
-                return true;
+    /**
+     * @param remaining - unseen copies of each card, indexed by card id
+     */
+    public double probablyPlayable(int[] remaining, BoardView b) {
+        int playable = playableMask(b);
+        int totalOptions = 0;
+        int playableOptions = 0;
+        for (int opts = options; opts != 0; opts &= opts - 1) {
+            int id = Integer.numberOfTrailingZeros(opts);
+            if ((playable & (1 << id)) != 0) {
+                playableOptions += remaining[id];
             }
+            totalOptions += remaining[id];
         }
-        return false;
+        return 1.0 * playableOptions / totalOptions;
+    }
+
+    static int mask(Card crd) {
+        return 1 << crd.id();
     }
 
-    public boolean isDiscardable(Board b){
-        for (Card crd : options) {
-            if (crd.value > b.tableau.get(crd.color)) {
-                // This card option is still useful for the tableau
-                return false;
+    /**
+     * @return a mask of the cards that could legally be played on b right now
+     */
+    static int playableMask(BoardView b) {
+        int result = 0;
+        for (int clr = Colors.MIN_COLOR; clr <= Colors.MAX_COLOR; clr++) {
+            int top = b.getTableau(clr);
+            if (top < Card.MAX_VALUE) {
+                result |= 1 << Card.idOf(clr, top + 1);
             }
         }
-        return true;
+        return result;
     }
 
-    public double probablyPlayable(HashMap<Card, Integer> remaining, Board b) {
-        int totalOptions = 0;
-        int playableOptions = 0;
-        for (Card option : options) {
-            if (b.isLegalPlay(option)) {
-                playableOptions += remaining.get(option);
+    /**
+     * @return a mask of the cards that are already on the tableau of b, and so can never be played again
+     */
+    static int deadMask(BoardView b) {
+        int result = 0;
+        for (int clr = Colors.MIN_COLOR; clr <= Colors.MAX_COLOR; clr++) {
+            int top = b.getTableau(clr);
+            result |= ((1 << top) - 1) << Card.idOf(clr, Card.MIN_VALUE);
+        }
+        return result;
+    }
+
+    /**
+     * @return a mask of the cards that are not on the tableau of b but can never be played either, because every
+     *  copy of a lower card of their color has been discarded
+     */
+    static int unreachableMask(BoardView b) {
+        int result = 0;
+        for (int clr = Colors.MIN_COLOR; clr <= Colors.MAX_COLOR; clr++) {
+            for (int v = b.getTableau(clr) + 1; v < Card.MAX_VALUE; v++) {
+                if (b.getDiscardCount(Card.idOf(clr, v)) >= Card.numCopies(v)) {
+                    for (int above = v + 1; above <= Card.MAX_VALUE; above++) {
+                        result |= 1 << Card.idOf(clr, above);
+                    }
+                    break;
+                }
             }
-            totalOptions += remaining.get(option);
         }
-        return 1.0 * playableOptions / totalOptions;
+        return result;
     }
 }
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ * The outcome of playing two strategies, A and B, on the same seeded decks; see Driver.compareStrategies().
+ * <p>
+ * Both strategies' score distributions are kept, along with the distribution of the paired differences
+ * (A's score minus B's on the same deck). Because the decks are shared, most of the luck of the deal cancels out
+ * of the differences, and their standard error is much smaller than that of the difference of two independent
+ * averages. Like SimulationResult, everything is kept as integer counts, so merging in any order gives exactly
+ * the same result.
+ */
+public class ComparisonResult {
+	private static final int MAX_DIFFERENCE = SimulationResult.MAX_SCORE;
+
+	private final SimulationResult a = new SimulationResult();
+	private final SimulationResult b = new SimulationResult();
+	// differences[d + MAX_DIFFERENCE] counts the decks on which A scored d more than B.
+	private final int[] differences = new int[2 * MAX_DIFFERENCE + 1];
+
+	/**
+	 * Adds one deck's pair of games.
+	 * @param errorA The GameError code A's game ended with
+	 * @param errorB The GameError code B's game ended with
+	 */
+	public void add(int scoreA, int errorA, int scoreB, int errorB) {
+		a.add(scoreA, errorA);
+		b.add(scoreB, errorB);
+		differences[scoreA - scoreB + MAX_DIFFERENCE]++;
+	}
+
+	/**
+	 * Folds other into this result.
+	 * @return this result, for use as a combiner
+	 */
+	public ComparisonResult merge(ComparisonResult other) {
+		a.merge(other.a);
+		b.merge(other.b);
+		for (int i = 0; i < differences.length; i++) {
+			differences[i] += other.differences[i];
+		}
+		return this;
+	}
+
+	/**
+	 * @return A's scores
+	 */
+	public SimulationResult getA() {
+		return a;
+	}
+
+	/**
+	 * @return B's scores
+	 */
+	public SimulationResult getB() {
+		return b;
+	}
+
+	public int getNumDecks() {
+		return a.getNumGames();
+	}
+
+	/**
+	 * @return how many decks A scored more on
+	 */
+	public int getWins() {
+		int result = 0;
+		for (int i = MAX_DIFFERENCE + 1; i < differences.length; i++) {
+			result += differences[i];
+		}
+		return result;
+	}
+
+	/**
+	 * @return how many decks B scored more on
+	 */
+	public int getLosses() {
+		int result = 0;
+		for (int i = 0; i < MAX_DIFFERENCE; i++) {
+			result += differences[i];
+		}
+		return result;
+	}
+
+	/**
+	 * @return how many decks A and B scored the same on
+	 */
+	public int getTies() {
+		return differences[MAX_DIFFERENCE];
+	}
+
+	/**
+	 * @return A's average score minus B's
+	 */
+	public double meanDifference() {
+		return getNumDecks() == 0 ? 0.0 : (a.getTotal() - b.getTotal()) / (double) getNumDecks();
+	}
+
+	/**
+	 * @return the sample variance of the paired differences, or NaN for fewer than two decks
+	 */
+	public double variance() {
+		int n = getNumDecks();
+		if (n < 2) {
+			return Double.NaN;
+		}
+		double mean = meanDifference();
+		double sum = 0;
+		for (int i = 0; i < differences.length; i++) {
+			double deviation = i - MAX_DIFFERENCE - mean;
+			sum += differences[i] * deviation * deviation;
+		}
+		return sum / (n - 1);
+	}
+
+	/**
+	 * @return the standard error of meanDifference(), or NaN for fewer than two decks
+	 */
+	public double standardError() {
+		return Math.sqrt(variance() / getNumDecks());
+	}
+
+	/**
+	 * @return how many standard errors meanDifference() is from 0; beyond about 2 either way, the difference is
+	 *         unlikely to be chance
+	 */
+	public double zScore() {
+		return meanDifference() / standardError();
+	}
+
+	/**
+	 * @return e.g. "A - B: +0.412 +/- 0.031 (95% CI, z = 26.0, 10000 decks); A wins 3120, loses 1204, ties 5676"
+	 */
+	public String summary() {
+		return String.format("A - B: %+.3f +/- %.3f (95%% CI, z = %.1f, %d decks); A wins %d, loses %d, ties %d",
+				meanDifference(), SimulationResult.Z_95 * standardError(), zScore(), getNumDecks(), getWins(),
+				getLosses(), getTies());
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof ComparisonResult r)) {
+			return false;
+		}
+		return a.equals(r.a) && b.equals(r.b) && Arrays.equals(differences, r.differences);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(differences);
+	}
+
+	@Override
+	public String toString() {
+		return summary();
+	}
+}
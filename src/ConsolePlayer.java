@@ -7,8 +7,13 @@ public class ConsolePlayer extends Player {
     private static final Scanner scn = new Scanner(System.in);
 
     @Override
-    public String ask(int yourHandSize, Hand partnerHand, Board boardState) {
+    public String ask(int yourHandSize, HandView partnerHand, BoardView boardState) {
         // Gets the next command from the user's console input
         return scn.nextLine();
     }
+
+    @Override
+    public int askAction(int yourHandSize, HandView partnerHand, BoardView boardState) {
+        return Action.parse(ask(yourHandSize, partnerHand, boardState));
+    }
 }
@@ -0,0 +1,110 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts which of Player's decision rules fire, how often each one's choice loses a fuse, and how long ask()
+ * takes.
+ * <p>
+ * Metrics are off unless the JVM is started with -Dhanabi.metrics=true. ENABLED is a static final constant, so
+ * when it is false the JIT drops every guarded call and the instrumentation costs nothing. The counters are
+ * LongAdders and the histogram is striped per thread, so parallel games can record into them without
+ * contending.
+ */
+public final class DecisionMetrics {
+	public static final boolean ENABLED = Boolean.getBoolean("hanabi.metrics");
+
+	// Player's rules, in the order ask() tries them.
+	public static final int HINT_STRANDED_ONE = 0;
+	public static final int PLAY_HINTED = 1;
+	public static final int PLAY_DEFINITELY_PLAYABLE = 2;
+	public static final int DISCARD_DISCARDABLE = 3;
+	public static final int HINT_PLAYABLE = 4;
+	public static final int KNOWN_ONE = 5;
+	public static final int GAMBLE = 6;
+	public static final int DISCARD_CHOP = 7;
+	public static final int NUM_RULES = 8;
+
+	private static final String[] RULE_NAMES = {
+			"color-hint stranded 1", "play hinted card", "play definitely playable", "discard discardable",
+			"hint partner's playable", "play/discard known 1", "probably-playable gamble", "discard chop block"
+	};
+
+	private static final LongAdder[] fired = newAdders();
+	private static final LongAdder[] misplays = newAdders();
+	private static final LatencyHistogram askLatency = new LatencyHistogram();
+
+	private DecisionMetrics() {
+	}
+
+	private static LongAdder[] newAdders() {
+		LongAdder[] result = new LongAdder[NUM_RULES];
+		for (int i = 0; i < NUM_RULES; i++) {
+			result[i] = new LongAdder();
+		}
+		return result;
+	}
+
+	public static String ruleName(int rule) {
+		return RULE_NAMES[rule];
+	}
+
+	/**
+	 * Notes that rule chose the action of one ask() call.
+	 */
+	public static void recordDecision(int rule) {
+		fired[rule].increment();
+	}
+
+	/**
+	 * Notes that a play chosen by rule turned out to be illegal and cost a fuse.
+	 */
+	public static void recordMisplay(int rule) {
+		misplays[rule].increment();
+	}
+
+	public static void recordAskNanos(long nanos) {
+		askLatency.record(nanos);
+	}
+
+	public static long fired(int rule) {
+		return fired[rule].sum();
+	}
+
+	public static long misplays(int rule) {
+		return misplays[rule].sum();
+	}
+
+	public static LatencyHistogram askLatency() {
+		return askLatency;
+	}
+
+	/**
+	 * Clears all metrics. Only safe while no games are running.
+	 */
+	public static void reset() {
+		for (int i = 0; i < NUM_RULES; i++) {
+			fired[i].reset();
+			misplays[i].reset();
+		}
+		askLatency.reset();
+	}
+
+	/**
+	 * @return a table of how often each rule fired and how often its choice was a misplay, then ask() latency
+	 */
+	public static String report() {
+		long total = 0;
+		for (int i = 0; i < NUM_RULES; i++) {
+			total += fired(i);
+		}
+		StringBuilder result = new StringBuilder();
+		result.append(String.format("%-26s %12s %7s %10s %8s%n", "Rule", "Fired", "Share", "Misplays", "Rate"));
+		for (int i = 0; i < NUM_RULES; i++) {
+			long f = fired(i);
+			long m = misplays(i);
+			result.append(String.format("%-26s %12d %6.2f%% %10d %7.2f%%%n", RULE_NAMES[i], f,
+					total == 0 ? 0.0 : 100.0 * f / total, m, f == 0 ? 0.0 : 100.0 * m / f));
+		}
+		result.append("ask() latency: ").append(askLatency);
+		return result.toString();
+	}
+}
@@ -1,22 +1,54 @@
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
 public class Driver {
-	public static void main(String[] args) {
-        int[] distribution = new int[26];
-        for (int j = 0; j < 5000; j++) {
-            Hanabi game = new Hanabi(false, new Player(), new Player());
-            int score = game.play();
-            distribution[score]++;
+	// Games are seeded in fixed-size blocks, so the seed of every game depends only on the master
+	// seed and the game's number, never on how the blocks are spread across threads.
+	public static final int GAMES_PER_BLOCK = 1024;
+	// main() traces one game in this many when given a trace file.
+	public static final int TRACE_EVERY = 100;
+	// main() plays until the 95% confidence interval on the average score is this narrow, or MAX_GAMES are played.
+	public static final double TARGET_HALF_WIDTH = 0.05;
+	public static final int MAX_GAMES = 200_000;
+	// main() scales its histogram so the longest bar is this many characters.
+	public static final int HISTOGRAM_WIDTH = 60;
+
+	/**
+	 * Usage: Driver [masterSeed [logFile|- [traceFile|- [resultsDirectory]]]]
+	 */
+	public static void main(String[] args) throws IOException {
+        long masterSeed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        SimulationResult result;
+        try (GameLogWriter log = args.length > 1 && !args[1].equals("-") ? new GameLogWriter(args[1]) : null;
+                EventLog trace = new EventLog(args.length > 2 && !args[2].equals("-") ? EventSink.file(args[2])
+                        : EventSink.NONE);
+                ResultStoreWriter results = args.length > 3 ? new ResultStoreWriter(args[3]) : null) {
+            int strategyId = results == null ? 0 : results.strategyId(Player.class.getSimpleName());
+            result = estimateScore(TARGET_HALF_WIDTH, MAX_GAMES, masterSeed, true, Player::new, log, trace,
+                    TRACE_EVERY, results, strategyId);
         }
-        for (int i = 0; i < distribution.length; i++) {
-            System.out.print(i + ":\t");
-            for (int j = 0; j < distribution[i]; j+=10) {
-                System.out.print("|");
-            }
-            System.out.print("\n");
+        int largest = 1;
+        for (int i = 0; i <= SimulationResult.MAX_SCORE; i++) {
+            largest = Math.max(largest, result.count(i));
+        }
+        for (int i = 0; i <= SimulationResult.MAX_SCORE; i++) {
+            // bars are scaled so the most common score fills HISTOGRAM_WIDTH, with a mark for any nonzero count
+            int width = (int) Math.ceil((double) result.count(i) * HISTOGRAM_WIDTH / largest);
+            System.out.println(i + ":\t" + "|".repeat(width) + " " + result.count(i));
+        }
+        System.out.println("Seed " + masterSeed + "; average score: " + result.intervalSummary() + "; "
+                + result.errorSummary());
+        if (DecisionMetrics.ENABLED) {
+            System.out.println(DecisionMetrics.report());
         }
 	}
 
 	/**
-	 * Used to evaluate your code
+	 * Used to evaluate your code. A game in which a player makes an illegal move or throws scores 0, and the
+	 * run carries on with the next game.
 	 * @param numGames - number of games to run
 	 * @param verbose - if true, prints each game's score
 	 * @return average score
@@ -25,21 +57,226 @@ public class Driver {
 		int total = 0;
 		for (int i = 0; i < numGames; i++) {
 			Hanabi next = new Hanabi(false, new Player(), new Player());
-			int score;
-			try {
-				score = next.play();
-			} catch (Exception e) {
-				e.printStackTrace();
-				if (verbose) {
-					System.out.println("Error; Score: 0");
-				}
-				return 0.0;
-			}
+			int score = next.playSafely();
 			if (verbose) {
-				System.out.println("Game " + i + " score: " + score);
+				if (next.getError() != GameError.NONE) {
+					System.out.println("Game " + i + " error: " + GameError.name(next.getError()) + "; Score: 0");
+				}
+				else {
+					System.out.println("Game " + i + " score: " + score);
+				}
 			}
 			total += score;
 		}
 		return total/(double)numGames;
 	}
+
+	/**
+	 * Runs a reproducible batch of games, optionally spread across all cores with the common fork-join pool.
+	 * The result for a given master seed is identical whether or not the run is parallel. Games that a player
+	 * cuts short with an illegal move or an exception score 0 and are counted by error in the result; the rest
+	 * of the batch still runs.
+	 * @param numGames - number of games to run
+	 * @param masterSeed - seed from which every game's shuffle is derived
+	 * @param parallel - if true, splits the games across all cores
+	 * @param players - creates the players; each thread of the run makes one pair and reset()s it between games
+	 * @return the merged score distribution
+	 */
+	public static SimulationResult simulateGames(final int numGames, long masterSeed, boolean parallel,
+			Supplier<? extends Player> players) {
+		return simulateGames(numGames, masterSeed, parallel, players, null);
+	}
+
+	/**
+	 * Runs a reproducible batch of games as above, recording every game to log.
+	 * @param log - the log to append each game to, or null to record nothing; in a parallel run the games are
+	 *            appended in the order they finish
+	 */
+	public static SimulationResult simulateGames(final int numGames, long masterSeed, boolean parallel,
+			Supplier<? extends Player> players, GameLogWriter log) {
+		return simulateGames(numGames, masterSeed, parallel, players, log, null, 1);
+	}
+
+	/**
+	 * Runs a reproducible batch of games as above, tracing a sample of them to trace.
+	 * @param trace - the log to trace games to, or null to trace nothing
+	 * @param traceEvery - trace game i when i is a multiple of this
+	 */
+	public static SimulationResult simulateGames(final int numGames, long masterSeed, boolean parallel,
+			Supplier<? extends Player> players, GameLogWriter log, EventLog trace, int traceEvery) {
+		if (traceEvery <= 0) {
+			throw new IllegalArgumentException("Driver.simulateGames() - bad traceEvery " + traceEvery);
+		}
+		EventLog events = trace != null && trace.isEnabled() ? trace : null;
+		long[] blockSeeds = blockSeeds(numGames, masterSeed);
+		IntStream blocks = IntStream.range(0, blockSeeds.length);
+		if (parallel) {
+			blocks = blocks.parallel();
+		}
+		ThreadLocal<Hanabi> games = gamePool(players, log, null, 0);
+		return blocks.collect(SimulationResult::new,
+				(result, block) -> playBlock(block, blockSeeds[block], numGames, games, events, traceEvery, result),
+				SimulationResult::merge);
+	}
+
+	/**
+	 * Plays games until the 95% confidence interval on the average score is no wider than +/- halfWidth, or
+	 * maxGames have been played. Games are played in rounds of whole blocks, one block per core, and the interval
+	 * is checked after each round, so a run can overshoot its target by up to a round. The games played are the
+	 * first ones that simulateGames() would play for the same master seed, and blocks are folded into the result
+	 * in order, so on a given machine the stopping point is the same whether or not the run is parallel.
+	 * <p>
+	 * Checking after every round makes the interval slightly optimistic; at the round counts this takes to reach
+	 * a useful width, the difference is negligible.
+	 * @param halfWidth - the widest acceptable half-width of the 95% interval, in points
+	 * @param maxGames - the most games to play, however wide the interval still is
+	 * @param log - the log to append each game to, or null to record nothing
+	 * @param trace - the log to trace a sample of games to, or null to trace nothing
+	 * @param traceEvery - trace game i when i is a multiple of this
+	 * @return the merged score distribution; see SimulationResult.intervalSummary()
+	 */
+	public static SimulationResult estimateScore(double halfWidth, int maxGames, long masterSeed, boolean parallel,
+			Supplier<? extends Player> players, GameLogWriter log, EventLog trace, int traceEvery) {
+		return estimateScore(halfWidth, maxGames, masterSeed, parallel, players, log, trace, traceEvery, null, 0);
+	}
+
+	/**
+	 * Estimates the average score as above, storing every game's outcome to results.
+	 * @param results - the store to append each game's outcome to, or null to store nothing
+	 * @param strategyId - the id to store the games under, from results.strategyId()
+	 */
+	public static SimulationResult estimateScore(double halfWidth, int maxGames, long masterSeed, boolean parallel,
+			Supplier<? extends Player> players, GameLogWriter log, EventLog trace, int traceEvery,
+			ResultStoreWriter results, int strategyId) {
+		if (!(halfWidth > 0) || maxGames <= 0 || traceEvery <= 0) {
+			throw new IllegalArgumentException("Driver.estimateScore() - bad halfWidth, maxGames or traceEvery");
+		}
+		EventLog events = trace != null && trace.isEnabled() ? trace : null;
+		long[] blockSeeds = blockSeeds(maxGames, masterSeed);
+		// Not tied to parallel, so that a sequential run stops where a parallel one would.
+		int roundBlocks = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+		ThreadLocal<Hanabi> games = gamePool(players, log, results, strategyId);
+		SimulationResult total = new SimulationResult();
+		for (int first = 0; first < blockSeeds.length
+				&& total.confidenceHalfWidth(SimulationResult.Z_95) > halfWidth; first += roundBlocks) {
+			int start = first;
+			IntStream round = IntStream.range(start, Math.min(blockSeeds.length, start + roundBlocks));
+			if (parallel) {
+				round = round.parallel();
+			}
+			SimulationResult[] roundResults = round.mapToObj(block -> {
+				SimulationResult result = new SimulationResult();
+				playBlock(block, blockSeeds[block], maxGames, games, events, traceEvery, result);
+				return result;
+			}).toArray(SimulationResult[]::new);
+			for (SimulationResult result : roundResults) {
+				total.merge(result);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Compares two strategies on common random numbers: every deck is dealt once to a pair of A players and once
+	 * to a pair of B players, with the same seed, so the luck of the deal mostly cancels out of the difference.
+	 * Decks are seeded as in simulateGames(), and the result for a given master seed is identical whether or not
+	 * the run is parallel.
+	 * @param numDecks - number of decks to play, each once per strategy
+	 * @param a - creates the players of A's games, one pair per thread, reset() between games
+	 * @param b - creates the players of B's games, one pair per thread, reset() between games
+	 * @return both score distributions and the paired differences
+	 */
+	public static ComparisonResult compareStrategies(final int numDecks, long masterSeed, boolean parallel,
+			Supplier<? extends Player> a, Supplier<? extends Player> b) {
+		long[] blockSeeds = blockSeeds(numDecks, masterSeed);
+		IntStream blocks = IntStream.range(0, blockSeeds.length);
+		if (parallel) {
+			blocks = blocks.parallel();
+		}
+		ThreadLocal<Hanabi> gamesA = gamePool(a, null, null, 0);
+		ThreadLocal<Hanabi> gamesB = gamePool(b, null, null, 0);
+		return blocks.collect(ComparisonResult::new,
+				(result, block) -> {
+					Hanabi gameA = gamesA.get();
+					Hanabi gameB = gamesB.get();
+					SplittableRandom seeds = new SplittableRandom(blockSeeds[block]);
+					int end = (int) Math.min(numDecks, (long) (block + 1) * GAMES_PER_BLOCK);
+					for (int i = block * GAMES_PER_BLOCK; i < end; i++) {
+						long seed = seeds.nextLong();
+						gameA.reset(seed);
+						int scoreA = gameA.playSafely();
+						gameB.reset(seed);
+						int scoreB = gameB.playSafely();
+						result.add(scoreA, gameA.getError(), scoreB, gameB.getError());
+					}
+				},
+				ComparisonResult::merge);
+	}
+
+	/**
+	 * Games are not allocated one by one: each thread of a run gets one Hanabi, with one pair of players, and
+	 * reset()s it for every game it plays. Players must therefore reset() cleanly; see Player.reset().
+	 * @param players - creates the two players of each thread's game
+	 * @param log - the log every game records to, or null
+	 * @param results - the store every game's outcome goes to, or null
+	 * @return a pool of one game per thread, for a single run
+	 */
+	private static ThreadLocal<Hanabi> gamePool(Supplier<? extends Player> players, GameLogWriter log,
+			ResultStoreWriter results, int strategyId) {
+		return ThreadLocal.withInitial(() -> {
+			Hanabi game = new Hanabi(false, players.get(), players.get(), 0);
+			if (log != null) {
+				game.setRecorder(log);
+			}
+			game.setResultStore(results, strategyId);
+			return game;
+		});
+	}
+
+	/**
+	 * Plays the games of one block into result.
+	 * @param numGames - the number of games in the whole run, which the last block stops short at
+	 * @param games - the pool to take this thread's game from
+	 * @param events - the log to trace a sample of games to, or null
+	 */
+	private static void playBlock(int block, long blockSeed, int numGames, ThreadLocal<Hanabi> games,
+			EventLog events, int traceEvery, SimulationResult result) {
+		SplittableRandom seeds = new SplittableRandom(blockSeed);
+		Hanabi game = games.get();
+		int end = (int) Math.min(numGames, (long) (block + 1) * GAMES_PER_BLOCK);
+		for (int i = block * GAMES_PER_BLOCK; i < end; i++) {
+			game.reset(seeds.nextLong());
+			game.setEventLog(events != null && i % traceEvery == 0 ? events : null);
+			int score = game.playSafely();
+			result.add(score, game.getError());
+		}
+	}
+
+	/**
+	 * @return the seed of every game of a run of numGames games from masterSeed, in order
+	 */
+	static long[] gameSeeds(int numGames, long masterSeed) {
+		long[] blockSeeds = blockSeeds(numGames, masterSeed);
+		long[] result = new long[numGames];
+		for (int block = 0; block < blockSeeds.length; block++) {
+			SplittableRandom seeds = new SplittableRandom(blockSeeds[block]);
+			int end = (int) Math.min(numGames, (long) (block + 1) * GAMES_PER_BLOCK);
+			for (int i = block * GAMES_PER_BLOCK; i < end; i++) {
+				result[i] = seeds.nextLong();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return one seed per block of GAMES_PER_BLOCK games, drawn in order from masterSeed
+	 */
+	static long[] blockSeeds(int numGames, long masterSeed) {
+		SplittableRandom master = new SplittableRandom(masterSeed);
+		long[] result = new long[(numGames + GAMES_PER_BLOCK - 1) / GAMES_PER_BLOCK];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = master.nextLong();
+		}
+		return result;
+	}
 }
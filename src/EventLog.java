@@ -0,0 +1,374 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A trace of what happens in games, rendered as text on a background thread.
+ * <p>
+ * Games publish events into a fixed ring of preallocated slots: each event is a few dozen ints copied out of the
+ * GameState, with no formatting and no allocation. A single renderer thread turns the events into the text that
+ * chatty games used to print, and hands it to an EventSink in batches. Any number of games, on any threads, can
+ * share one log; the lines of one event are never split up, but the events of concurrent games interleave, which
+ * is what the seed on each game's first line is for. If the renderer falls behind by a full ring, publishing
+ * waits for it. The renderer sleeps while there is nothing to render, and the next event published wakes it.
+ * <p>
+ * console(), which interactive games print to, renders inline instead: each event is rendered and flushed on the
+ * thread that publishes it before the game carries on, so its lines come out in order with anything else the
+ * program prints, such as ConsolePlayer's prompts.
+ * <p>
+ * A log whose sink is EventSink.NONE drops events without copying anything.
+ */
+public class EventLog implements Closeable {
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	// Event types.
+	static final int GAME_START = 0;
+	static final int ACTION = 1;
+	static final int GAME_END = 2;
+	static final int GAME_ERROR = 3;
+
+	// Layout of an event's ints.
+	private static final int TYPE = 0;
+	private static final int PLAYER = 1;
+	private static final int ACTION_TAKEN = 2;
+	private static final int LAST_CARD = 3;
+	private static final int LAST_DRAW = 4;
+	private static final int LEGAL = 5;
+	private static final int HINT_MASK = 6;
+	// The score for GAME_END, the GameError code for GAME_ERROR.
+	private static final int VALUE = 7;
+	private static final int BOARD = 8;
+	private static final int HANDS = BOARD + Board.SAVED_INTS;
+	private static final int EVENT_INTS = HANDS + 2 * (1 + GameState.HAND_SIZE);
+
+	// Rendered text is handed to the sink once this much has built up, or whenever the ring is empty.
+	private static final int BATCH_CHARS = 8192;
+	private static final long IDLE_NANOS = 100_000;
+
+	private static EventLog console;
+
+	private final EventSink sink;
+	private final int mask;
+	private final int[][] slots;
+	private final long[] seeds;
+	// Sequence number of the next event to claim, and of the event each slot holds once it is filled in.
+	private final AtomicLong claimed = new AtomicLong();
+	private final AtomicLongArray published;
+	// Sequence number of the next event to render, and of the first one not yet handed to the sink.
+	private volatile long consumed;
+	private volatile long written;
+	private volatile boolean closed;
+	private volatile IOException failure;
+	private final Thread renderer;
+	// Set by the renderer before it parks, so that publish() knows to wake it.
+	private volatile boolean sleeping;
+	// True to render each event on the thread that publishes it, with no renderer thread.
+	private final boolean inline;
+
+	// Scratch state the renderer rebuilds each event into, so it can reuse Board's and Hand's toString().
+	private final Board board = new Board();
+	private final Hand[] hands = {new Hand(), new Hand()};
+	private final StringBuilder text = new StringBuilder(2 * BATCH_CHARS);
+
+	public EventLog(EventSink sink) {
+		this(sink, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity How many events can wait to be rendered; rounded up to a power of two
+	 */
+	public EventLog(EventSink sink, int capacity) {
+		this(sink, capacity, false);
+	}
+
+	/**
+	 * @param inline True to render each event on the thread that publishes it, as console() does
+	 */
+	private EventLog(EventSink sink, int capacity, boolean inline) {
+		if (capacity <= 0 || capacity > 1 << 20) {
+			throw new IllegalArgumentException("EventLog() - bad capacity " + capacity);
+		}
+		this.sink = sink;
+		this.inline = inline;
+		int size = sink == EventSink.NONE || inline ? 1 : Math.max(1, Integer.highestOneBit(capacity - 1) << 1);
+		mask = size - 1;
+		slots = new int[size][EVENT_INTS];
+		seeds = new long[size];
+		published = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			published.set(i, -1);
+		}
+		renderer = new Thread(this::render, "EventLog renderer");
+		renderer.setDaemon(true);
+		if (sink != EventSink.NONE && !inline) {
+			renderer.start();
+		}
+	}
+
+	/**
+	 * @return the log chatty games print to, which renders inline and is closed when the JVM exits
+	 */
+	public static synchronized EventLog console() {
+		if (console == null) {
+			EventLog log = new EventLog(EventSink.console(), 1, true);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					log.close();
+				}
+				catch (IOException e) {
+					// Nowhere left to report it.
+				}
+			}));
+			console = log;
+		}
+		return console;
+	}
+
+	/**
+	 * @return false if events published to this log are thrown away
+	 */
+	public boolean isEnabled() {
+		return sink != EventSink.NONE;
+	}
+
+	/**
+	 * Records the deal of a game.
+	 */
+	void gameStart(long seed, GameState state) {
+		publish(GAME_START, 0, 0, 0, state, seed);
+	}
+
+	/**
+	 * Records an action just performed on state by player.
+	 */
+	void action(int player, int action, GameState state) {
+		publish(ACTION, player, action, 0, state, 0);
+	}
+
+	/**
+	 * Records the end of a game that ran its course.
+	 */
+	void gameEnd(int score, GameState state) {
+		publish(GAME_END, 0, 0, score, state, 0);
+	}
+
+	/**
+	 * Records a game cut short by a misbehaving player.
+	 * @param error The GameError code
+	 */
+	void gameError(int error, GameState state) {
+		publish(GAME_ERROR, 0, 0, error, state, 0);
+	}
+
+	private void publish(int type, int player, int action, int value, GameState state, long seed) {
+		if (sink == EventSink.NONE) {
+			return;
+		}
+		if (closed) {
+			throw new IllegalStateException("EventLog.publish() - log is closed");
+		}
+		if (inline) {
+			synchronized (this) {
+				fill(slots[0], type, player, action, value, state);
+				append(slots[0], seed);
+				long seq = claimed.incrementAndGet();
+				consumed = seq;
+				emit(seq, true);
+			}
+			return;
+		}
+		long seq = claimed.getAndIncrement();
+		while (seq - consumed > mask) {
+			LockSupport.unpark(renderer);
+			LockSupport.parkNanos(IDLE_NANOS);
+		}
+		int slot = (int) seq & mask;
+		fill(slots[slot], type, player, action, value, state);
+		seeds[slot] = seed;
+		published.set(slot, seq);
+		if (sleeping) {
+			LockSupport.unpark(renderer);
+		}
+	}
+
+	/**
+	 * Copies an event out of state into the ints of a slot.
+	 */
+	private static void fill(int[] event, int type, int player, int action, int value, GameState state) {
+		event[TYPE] = type;
+		event[PLAYER] = player;
+		event[ACTION_TAKEN] = action;
+		event[LAST_CARD] = state.getLastCard();
+		event[LAST_DRAW] = state.getLastDraw();
+		event[LEGAL] = state.wasLastPlayLegal() ? 1 : 0;
+		event[HINT_MASK] = state.getLastHintMask();
+		event[VALUE] = value;
+		state.board.save(event, BOARD);
+		state.hands[1].save(event, state.hands[0].save(event, HANDS));
+	}
+
+	/**
+	 * Waits until every event published so far has been handed to the sink, and the sink flushed.
+	 * @throws IOException if the sink has failed
+	 */
+	public void flush() throws IOException {
+		long target = claimed.get();
+		while (written < target && renderer.isAlive()) {
+			LockSupport.unpark(renderer);
+			LockSupport.parkNanos(IDLE_NANOS);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Renders whatever is left, stops the renderer and closes the sink. Events published during or after close()
+	 * are rejected or lost.
+	 * @throws IOException if the sink failed at any point
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		LockSupport.unpark(renderer);
+		boolean interrupted = false;
+		while (renderer.isAlive()) {
+			try {
+				renderer.join();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			synchronized (this) {
+				sink.close();
+			}
+		}
+		catch (IOException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * The renderer thread's loop.
+	 */
+	private void render() {
+		long next = 0;
+		while (true) {
+			int slot = (int) next & mask;
+			if (published.get(slot) == next) {
+				append(slots[slot], seeds[slot]);
+				consumed = ++next;
+				if (text.length() >= BATCH_CHARS) {
+					emit(next, false);
+				}
+			}
+			else if (text.length() > 0 || written < next) {
+				emit(next, true);
+			}
+			else if (closed && claimed.get() == next) {
+				return;
+			}
+			else {
+				// Publishers check sleeping after publishing, and we check for their event after setting it, so
+				// one of us always sees the other.
+				sleeping = true;
+				if (published.get(slot) != next && !closed) {
+					LockSupport.park(this);
+				}
+				sleeping = false;
+			}
+		}
+	}
+
+	/**
+	 * Hands the rendered text to the sink. After the sink fails, text is dropped so that games are not held up.
+	 */
+	private void emit(long upTo, boolean flush) {
+		if (failure == null) {
+			try {
+				sink.write(text);
+				if (flush) {
+					sink.flush();
+				}
+			}
+			catch (IOException e) {
+				failure = e;
+			}
+		}
+		text.setLength(0);
+		written = upTo;
+	}
+
+	/**
+	 * Renders one event in the words chatty games have always used.
+	 */
+	private void append(int[] event, long seed) {
+		board.load(event, BOARD);
+		hands[1].load(event, hands[0].load(event, HANDS));
+		int player = event[PLAYER];
+		int action = event[ACTION_TAKEN];
+		switch (event[TYPE]) {
+			case GAME_START -> {
+				text.append("\nGame ").append(seed).append('\n');
+				appendState();
+			}
+			case ACTION -> {
+				switch (Action.type(action)) {
+					case Action.PLAY, Action.DISCARD -> {
+						boolean play = Action.type(action) == Action.PLAY;
+						text.append("Player ").append(player).append(play ? " plays " : " discards ")
+								.append(Card.ofId(event[LAST_CARD])).append(" from position ").append(Action.index(action));
+						if (event[LAST_DRAW] >= 0) {
+							text.append(" and draws a card to index ").append(Action.drawIndex(action)).append('\n');
+						}
+						else {
+							text.append(" and cannot draw because the deck is empty.\n");
+						}
+						if (play && event[LEGAL] == 0) {
+							text.append("The play is illegal; removing a fuse.\n");
+						}
+					}
+					case Action.NUMBERHINT -> text.append("Player ").append(player).append(" hints the number ")
+							.append(Action.hint(action)).append(" for indices ");
+					case Action.COLORHINT -> text.append("Player ").append(player).append(" hints the color ")
+							.append(Colors.suitColor(Action.hint(action))).append(" for indices ");
+				}
+				if (Action.type(action) == Action.NUMBERHINT || Action.type(action) == Action.COLORHINT) {
+					text.append(Hanabi.hintIndices(event[HINT_MASK])).append('\n');
+				}
+				text.append('\n');
+				appendState();
+			}
+			case GAME_END -> {
+				if (event[BOARD + 1] <= 0) {
+					text.append("Ran out of fuses; Score: 0\n");
+				}
+				else {
+					text.append("Game ended; Score: ").append(event[VALUE]).append('\n');
+				}
+			}
+			case GAME_ERROR -> text.append("Error: ").append(GameError.name(event[VALUE])).append("; Score: 0\n");
+		}
+	}
+
+	private void appendState() {
+		text.append("Player 0 hand: ").append(hands[0]).append('\n');
+		text.append("Player 1 hand: ").append(hands[1]).append('\n');
+		text.append("Board state: \n").append(board).append('\n');
+	}
+}
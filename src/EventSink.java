@@ -0,0 +1,68 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Where an EventLog's rendered text goes. Only the EventLog's renderer thread calls a sink, so sinks need not be
+ * thread-safe.
+ */
+public interface EventSink extends Closeable {
+	/**
+	 * Discards everything. An EventLog with this sink does not even record events.
+	 */
+	EventSink NONE = text -> {
+	};
+
+	void write(CharSequence text) throws IOException;
+
+	default void flush() throws IOException {
+	}
+
+	@Override
+	default void close() throws IOException {
+		flush();
+	}
+
+	/**
+	 * @return a sink that prints to System.out, and leaves it open when closed
+	 */
+	static EventSink console() {
+		return new EventSink() {
+			@Override
+			public void write(CharSequence text) {
+				System.out.append(text);
+			}
+
+			@Override
+			public void flush() {
+				System.out.flush();
+			}
+		};
+	}
+
+	/**
+	 * @return a sink that writes to the given file, replacing it
+	 */
+	static EventSink file(String path) throws IOException {
+		Writer out = Files.newBufferedWriter(Path.of(path), StandardCharsets.UTF_8);
+		return new EventSink() {
+			@Override
+			public void write(CharSequence text) throws IOException {
+				out.append(text);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				out.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				out.close();
+			}
+		};
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ * Codes for the ways a game can be cut short by a misbehaving player, as reported by Hanabi.playSafely() and
+ * counted in SimulationResult. TIMEOUT can also end a play() game that runs under a MoveWatchdog.
+ * <p>
+ * These are plain ints, like the Action types, so a failed game costs no allocation and no stack trace.
+ */
+public final class GameError {
+	public static final int NONE = 0;
+	// The action is not one of the four action types.
+	public static final int ILLEGAL_COMMAND = 1;
+	// A play or discard names a hand or draw index outside the player's hand.
+	public static final int BAD_INDEX = 2;
+	// A hint is given with no hints remaining.
+	public static final int NO_HINTS = 3;
+	// A hint names a number or color that is not in the partner's hand, or a color that does not exist.
+	public static final int BAD_HINT = 4;
+	// The player threw an exception from askAction() or one of the tell...() methods.
+	public static final int PLAYER_EXCEPTION = 5;
+	// The player overran its MoveWatchdog deadline and the game was forfeited.
+	public static final int TIMEOUT = 6;
+	public static final int NUM_CODES = 7;
+
+	private static final String[] NAMES = {
+			"none", "illegal command", "bad index", "hint with no hints", "bad hint", "player exception", "timeout"
+	};
+
+	private GameError() {
+	}
+
+	public static String name(int code) {
+		return NAMES[code];
+	}
+}
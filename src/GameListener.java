@@ -0,0 +1,22 @@
+import java.util.ArrayList;
+
+/**
+ * What Hanabi tells a seat as its game goes on; see the methods of the same names in Player, which implements it.
+ * Drivers in this package that ask for actions themselves, such as BotServer, seat listeners instead of Players.
+ */
+interface GameListener {
+	void tellPartnerDiscard(HandView startHand, Card discard, int disIndex, Card draw, int drawIndex,
+			HandView finalHand, BoardView boardState);
+
+	void tellYourDiscard(Card discard, int disIndex, int drawIndex, boolean drawSucceeded, BoardView boardState);
+
+	void tellPartnerPlay(HandView startHand, Card play, int playIndex, Card draw, int drawIndex, HandView finalHand,
+			boolean wasLegalPlay, BoardView boardState);
+
+	void tellYourPlay(Card play, int playIndex, int drawIndex, boolean drawSucceeded, boolean wasLegalPlay,
+			BoardView boardState);
+
+	void tellColorHint(int color, ArrayList<Integer> indices, HandView partnerHand, BoardView boardState);
+
+	void tellNumberHint(int number, ArrayList<Integer> indices, HandView partnerHand, BoardView boardState);
+}
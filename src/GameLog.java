@@ -0,0 +1,114 @@
+/**
+ * The compact binary format used to record games.
+ * <p>
+ * A log is a single file. It starts with a header of MAGIC and VERSION, then holds one record per game,
+ * appended in the order the games finished:
+ * <ul>
+ *     <li>the game's seed, 8 bytes</li>
+ *     <li>the final score, 1 byte</li>
+ *     <li>the number of actions, 1 byte</li>
+ *     <li>the shuffled deck, DECK_BYTES bytes: the 50 card ids at 5 bits each, dealt from the last one back</li>
+ *     <li>the actions, 1 byte each, as produced by encodeAction(), padded with zeros to MAX_ACTIONS bytes</li>
+ * </ul>
+ * Every record is RECORD_BYTES long, so game n starts at offset(n) and can be found without reading the games
+ * before it or keeping an index. All multi-byte values are big-endian.
+ */
+public final class GameLog {
+	public static final int MAGIC = 0x48414E42;	// "HANB"
+	public static final int VERSION = 2;
+	public static final int FILE_HEADER_BYTES = 8;
+
+	public static final int DECK_SIZE = 50;
+	public static final int DECK_BYTES = (DECK_SIZE * 5 + 7) / 8;
+	public static final int RECORD_HEADER_BYTES = 8 + 1 + 1 + DECK_BYTES;
+
+	// No game can take more turns than this: at most 40 plays and discards, since the game ends when the deck
+	// runs out, and at most 8 + 40 + 5 hints, since only discards and played 5s earn hints back.
+	public static final int MAX_ACTIONS = 128;
+	public static final int RECORD_BYTES = RECORD_HEADER_BYTES + MAX_ACTIONS;
+
+	private GameLog() {
+	}
+
+	/**
+	 * @return the offset in the file of the record of game n, counting from 0
+	 */
+	public static long offset(long game) {
+		return FILE_HEADER_BYTES + game * RECORD_BYTES;
+	}
+
+	/**
+	 * @return how many whole records a log of the given size holds; a record cut short by a crash is not counted
+	 */
+	public static long numGames(long fileSize) {
+		return Math.max(0, (fileSize - FILE_HEADER_BYTES) / RECORD_BYTES);
+	}
+
+	/**
+	 * Packs an action into one byte: the type less one in bits 6-7, then for plays and discards the index in
+	 * bits 3-5 and the draw index in bits 0-2, and for hints the number or color in bits 3-5. Only actions the
+	 * engine has accepted are recorded, so every field fits.
+	 */
+	public static byte encodeAction(int action) {
+		int type = Action.type(action);
+		int bits = (type - 1) << 6;
+		if (type == Action.PLAY || type == Action.DISCARD) {
+			bits |= (Action.index(action) << 3) | Action.drawIndex(action);
+		}
+		else {
+			bits |= Action.hint(action) << 3;
+		}
+		return (byte) bits;
+	}
+
+	/**
+	 * @return the packed action, as built by the Action factory methods, for a byte from encodeAction()
+	 */
+	public static int decodeAction(byte encoded) {
+		int type = ((encoded >> 6) & 3) + 1;
+		int first = (encoded >> 3) & 7;
+		return switch (type) {
+			case Action.PLAY -> Action.play(first, encoded & 7);
+			case Action.DISCARD -> Action.discard(first, encoded & 7);
+			case Action.NUMBERHINT -> Action.numberHint(first);
+			default -> Action.colorHint(first);
+		};
+	}
+
+	/**
+	 * Packs 50 card ids into DECK_BYTES bytes, 5 bits each, starting at out[offset].
+	 */
+	public static void packDeck(int[] deck, byte[] out, int offset) {
+		long acc = 0;
+		int bits = 0;
+		int pos = offset;
+		for (int i = 0; i < DECK_SIZE; i++) {
+			acc = (acc << 5) | deck[i];
+			bits += 5;
+			while (bits >= 8) {
+				bits -= 8;
+				out[pos++] = (byte) (acc >> bits);
+			}
+		}
+		if (bits > 0) {
+			out[pos] = (byte) (acc << (8 - bits));
+		}
+	}
+
+	/**
+	 * Reverses packDeck(), reading DECK_BYTES bytes from in[offset] into deck.
+	 */
+	public static void unpackDeck(byte[] in, int offset, int[] deck) {
+		long acc = 0;
+		int bits = 0;
+		int pos = offset;
+		for (int i = 0; i < DECK_SIZE; i++) {
+			while (bits < 5) {
+				acc = (acc << 8) | (in[pos++] & 0xFF);
+				bits += 8;
+			}
+			bits -= 5;
+			deck[i] = (int) (acc >> bits) & 0x1F;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Appends games to a log in the GameLog format.
+ * <p>
+ * Records are gathered in a direct buffer and written to the file through its FileChannel in large blocks.
+ * Opening an existing log appends to it; if a crash left a record cut short at the end, it is cut off first, so
+ * every record stays at its offset. One writer can be shared by games running on several threads; append() is
+ * synchronized.
+ */
+public class GameLogWriter implements Closeable {
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final FileChannel data;
+	private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	private final byte[] record = new byte[GameLog.RECORD_BYTES];
+
+	/**
+	 * Opens the log at dataPath, creating it if it does not exist.
+	 * @throws IOException if the file cannot be opened, or dataPath is not a game log
+	 */
+	public GameLogWriter(String dataPath) throws IOException {
+		data = FileChannel.open(Path.of(dataPath), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		if (data.size() == 0) {
+			dataBuffer.putInt(GameLog.MAGIC).putInt(GameLog.VERSION);
+		}
+		else {
+			ByteBuffer header = ByteBuffer.allocate(GameLog.FILE_HEADER_BYTES);
+			data.read(header, 0);
+			header.flip();
+			if (header.remaining() < GameLog.FILE_HEADER_BYTES || header.getInt() != GameLog.MAGIC
+					|| header.getInt() != GameLog.VERSION) {
+				close();
+				throw new IOException("GameLogWriter() - " + dataPath + " is not a version " + GameLog.VERSION +
+						" game log");
+			}
+			data.truncate(GameLog.offset(GameLog.numGames(data.size())));
+		}
+		data.position(data.size());
+	}
+
+	/**
+	 * Appends one finished game, padded to GameLog.RECORD_BYTES.
+	 * @param seed The seed the game was created with
+	 * @param deck The shuffled deck, as 50 card ids
+	 * @param actions The game's actions, each from GameLog.encodeAction()
+	 * @param numActions How many entries of actions were used, at most GameLog.MAX_ACTIONS
+	 * @param score The final score
+	 * @throws UncheckedIOException if the log cannot be written
+	 */
+	public synchronized void append(long seed, int[] deck, byte[] actions, int numActions, int score) {
+		if (numActions < 0 || numActions > GameLog.MAX_ACTIONS) {
+			throw new IllegalArgumentException("GameLogWriter.append() - bad action count " + numActions);
+		}
+		for (int i = 0; i < 8; i++) {
+			record[i] = (byte) (seed >>> (56 - 8 * i));
+		}
+		record[8] = (byte) score;
+		record[9] = (byte) numActions;
+		GameLog.packDeck(deck, record, 10);
+		System.arraycopy(actions, 0, record, GameLog.RECORD_HEADER_BYTES, numActions);
+		Arrays.fill(record, GameLog.RECORD_HEADER_BYTES + numActions, GameLog.RECORD_BYTES, (byte) 0);
+
+		if (dataBuffer.remaining() < GameLog.RECORD_BYTES) {
+			try {
+				flush(data, dataBuffer);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		dataBuffer.put(record);
+	}
+
+	/**
+	 * Writes any buffered records and closes the log.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush(data, dataBuffer);
+		}
+		finally {
+			data.close();
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
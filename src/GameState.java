@@ -0,0 +1,482 @@
+import java.util.SplittableRandom;
+
+/**
+ * The complete state of a two-player game, and the rules for advancing it.
+ * <p>
+ * Unlike Hanabi, this knows nothing about Players: perform() carries out an action and leaves what happened
+ * in the getLast...() accessors, without calling anyone back. Hanabi runs its games on one of these, and
+ * Replay uses them to re-execute recorded games.
+ * <p>
+ * All of the state is in a handful of small arrays, so snapshot() and restore() are just array copies;
+ * search players can take a snapshot, apply() moves to see where they lead, and restore() to try the next.
+ */
+public class GameState {
+	public static final int HAND_SIZE = 5;
+	// Plays and discards for every pair of hand and draw indices, and every number and color hint.
+	public static final int MAX_LEGAL_ACTIONS = 2 * HAND_SIZE * HAND_SIZE + Card.MAX_VALUE + Colors.MAX_COLOR + 1;
+
+	// The deck before shuffling: three of each 1, two of each 2-3-4, and one of each 5, color by color.
+	private static final int[] NEW_DECK = new int[GameLog.DECK_SIZE];
+
+	static {
+		int count = 0;
+		for (int i = 0; i < 5; i++) {
+			for (int v = Card.MIN_VALUE; v <= Card.MAX_VALUE; v++) {
+				for (int k = 0; k < Card.numCopies(v); k++) {
+					NEW_DECK[count++] = Card.idOf(i, v);
+				}
+			}
+		}
+	}
+
+	final Board board;
+	final Hand[] hands;
+	// Card ids; the top of the deck is deck[deckCount - 1]. Dealing never overwrites the array.
+	final int[] deck;
+	int deckCount;
+	int currentPlayer;
+
+	// What the last perform() did.
+	private int lastCard;
+	private int lastDraw;
+	private boolean lastPlayLegal;
+	private int lastHintMask;
+
+	// Counts for the game so far: actions taken, hints given and plays that cost a fuse.
+	private int turns;
+	private int hintsUsed;
+	private int misplays;
+
+	/**
+	 * Creates a game with a full, unshuffled deck and empty hands; call shuffle() and deal() to start it.
+	 */
+	public GameState() {
+		board = new Board();
+		hands = new Hand[] {new Hand(), new Hand()};
+		deck = NEW_DECK.clone();
+		deckCount = deck.length;
+	}
+
+	/**
+	 * Creates a game on an already-shuffled deck and deals the starting hands.
+	 * @param shuffledDeck The 50 card ids of the deck; cards are dealt from the last one back
+	 */
+	public GameState(int[] shuffledDeck) {
+		this();
+		System.arraycopy(shuffledDeck, 0, deck, 0, deck.length);
+		deal();
+	}
+
+	/**
+	 * Creates an independent copy of other.
+	 */
+	public GameState(GameState other) {
+		board = new Board(other.board);
+		hands = new Hand[] {new Hand(other.hands[0]), new Hand(other.hands[1])};
+		deck = other.deck.clone();
+		copyScalars(other);
+	}
+
+	/**
+	 * @return an independent copy of this state, for restore() or for exploring moves on
+	 */
+	public GameState snapshot() {
+		return new GameState(this);
+	}
+
+	/**
+	 * Overwrites this state with snapshot, without allocating; snapshot is left unchanged and can be reused.
+	 */
+	public void restore(GameState snapshot) {
+		board.copyFrom(snapshot.board);
+		hands[0].copyFrom(snapshot.hands[0]);
+		hands[1].copyFrom(snapshot.hands[1]);
+		System.arraycopy(snapshot.deck, 0, deck, 0, deck.length);
+		copyScalars(snapshot);
+	}
+
+	private void copyScalars(GameState other) {
+		deckCount = other.deckCount;
+		currentPlayer = other.currentPlayer;
+		lastCard = other.lastCard;
+		lastDraw = other.lastDraw;
+		lastPlayLegal = other.lastPlayLegal;
+		lastHintMask = other.lastHintMask;
+		turns = other.turns;
+		hintsUsed = other.hintsUsed;
+		misplays = other.misplays;
+	}
+
+	/**
+	 * Puts this game back in its starting state, as if newly constructed: a full, unshuffled deck, empty hands
+	 * and a fresh board. Nothing is allocated.
+	 */
+	public void reset() {
+		board.reset();
+		hands[0].clear();
+		hands[1].clear();
+		System.arraycopy(NEW_DECK, 0, deck, 0, deck.length);
+		deckCount = deck.length;
+		currentPlayer = 0;
+		lastCard = 0;
+		lastDraw = 0;
+		lastPlayLegal = false;
+		lastHintMask = 0;
+		turns = 0;
+		hintsUsed = 0;
+		misplays = 0;
+	}
+
+	/**
+	 * Starts this game over on an already-shuffled deck and deals the starting hands, reusing its storage.
+	 * @param shuffledDeck The 50 card ids of the deck; cards are dealt from the last one back
+	 */
+	public void reset(int[] shuffledDeck) {
+		board.reset();
+		hands[0].clear();
+		hands[1].clear();
+		System.arraycopy(shuffledDeck, 0, deck, 0, deck.length);
+		deckCount = deck.length;
+		currentPlayer = 0;
+		turns = 0;
+		hintsUsed = 0;
+		misplays = 0;
+		deal();
+	}
+
+	/**
+	 * Shuffle the undealt cards using the Fisher-Yates shuffling algorithm, drawing from rand.
+	 */
+	public void shuffle(SplittableRandom rand) {
+		for (int i = deckCount - 1; i >= 1; i--) {
+			int j = rand.nextInt(i + 1);
+			int temp = deck[j];
+			deck[j] = deck[i];
+			deck[i] = temp;
+		}
+	}
+
+	/**
+	 * Deals five cards to both players, alternating, each to the front of the hand.
+	 */
+	public void deal() {
+		for (int i = 0; i < HAND_SIZE; i++) {
+			hands[0].addId(0, dealCardId());
+			hands[1].addId(0, dealCardId());
+		}
+	}
+
+	/**
+	 * Removes the last card from the deck and updates the board for reduced deck size.
+	 * @return The id of the card removed
+	 * @throws IllegalStateException if the deck is empty
+	 */
+	public int dealCardId() {
+		if (deckCount == 0) {
+			throw new IllegalStateException("GameState.dealCardId() - Dealing from an empty deck");
+		}
+		board.deckSize--;
+		return deck[--deckCount];
+	}
+
+	/**
+	 * Carries out action for the current player, without changing whose turn it is.
+	 * @param action The packed action, as built by the Action factory methods
+	 * @throws IllegalArgumentException In case of illegal actions; the state is unchanged
+	 */
+	public void perform(int action) throws IllegalArgumentException {
+		Hand hand = hands[currentPlayer];
+		Hand partnerHand = hands[1 - currentPlayer];
+		switch (Action.type(action)) {
+			case Action.PLAY, Action.DISCARD -> {
+				String verb = Action.type(action) == Action.PLAY ? "Play" : "Discard";
+				// Error if play/discard index out of range.
+				int index = Action.index(action);
+				if (index < 0 || index >= hand.size()) {
+					throw new IllegalArgumentException("GameState.perform() - " + verb + " index " + index +
+							" is outside player's hand size of " + hand.size());
+				}
+				// Error if draw index out of range.
+				int drawIndex = Action.drawIndex(action);
+				if (drawIndex < 0 || drawIndex >= hand.size()) {
+					throw new IllegalArgumentException("GameState.perform() - Draw index " + drawIndex +
+							" is outside player's hand size of " + hand.size());
+				}
+				// No errors.
+				lastCard = hand.removeId(index);
+				if (Action.type(action) == Action.PLAY) {
+					lastPlayLegal = board.play(Card.ofId(lastCard));
+					if (!lastPlayLegal) {
+						misplays++;
+					}
+				}
+				else {
+					board.discard(Card.ofId(lastCard));
+					if (board.numHints < Board.MAX_HINTS) {
+						board.numHints++;
+					}
+					lastPlayLegal = false;
+				}
+				lastDraw = -1;
+				if (deckCount > 0) {
+					lastDraw = dealCardId();
+					hand.addId(drawIndex, lastDraw);
+				}
+				lastHintMask = 0;
+			}
+			case Action.NUMBERHINT, Action.COLORHINT -> {
+				boolean numberHint = Action.type(action) == Action.NUMBERHINT;
+				String kind = numberHint ? "Numberhint" : "Colorhint";
+				// Error if out of hints.
+				if (board.numHints <= 0) {
+					throw new IllegalArgumentException("GameState.perform() - " + kind + " with no hints remaining");
+				}
+				// Error if specified color is not a real color
+				int hint = Action.hint(action);
+				if (!numberHint && !Colors.isSuit(hint)) {
+					throw new IllegalArgumentException("GameState.perform() - Colorhint with bad color " + hint);
+				}
+				// Error if specified number or color not in other player's hand.
+				int mask = hintMask(partnerHand, numberHint, hint);
+				if (mask == 0) {
+					throw new IllegalArgumentException("GameState.perform() - " + kind + " with " +
+							(numberHint ? "number " : "color ") + hint + " not in other player's hand.");
+				}
+				// No errors. Decrement hints.
+				board.numHints--;
+				lastCard = -1;
+				lastDraw = -1;
+				lastPlayLegal = false;
+				lastHintMask = mask;
+				hintsUsed++;
+			}
+
+			// Bad command.
+			default -> throw new IllegalArgumentException("GameState.perform() - illegal action type " + Action.type(action));
+		}
+		turns++;
+	}
+
+	/**
+	 * Carries out action for the current player, then passes the turn.
+	 * @throws IllegalArgumentException In case of illegal actions; the state is unchanged
+	 */
+	public void apply(int action) throws IllegalArgumentException {
+		perform(action);
+		switchPlayers();
+	}
+
+	/**
+	 * @return true if perform() would accept action for the current player
+	 */
+	public boolean isLegal(int action) {
+		return check(action) == GameError.NONE;
+	}
+
+	/**
+	 * @return true if the action is legal, judged from what a player can see; see check()
+	 */
+	public static boolean isLegal(int action, int handSize, HandView partnerHand, BoardView board) {
+		return check(action, handSize, partnerHand, board) == GameError.NONE;
+	}
+
+	/**
+	 * @return GameError.NONE if perform() would accept action for the current player, or the GameError code for
+	 *  why it would not
+	 */
+	public int check(int action) {
+		return check(action, hands[currentPlayer].size(), hands[1 - currentPlayer], board);
+	}
+
+	/**
+	 * Checks an action against what a player can see, without throwing; for bots, which only get views.
+	 * @param action The packed action, as built by the Action factory methods
+	 * @param handSize The size of the acting player's hand
+	 * @param partnerHand The other player's hand
+	 * @param board The board
+	 * @return GameError.NONE if the action is legal, or the GameError code for why it is not
+	 */
+	public static int check(int action, int handSize, HandView partnerHand, BoardView board) {
+		switch (Action.type(action)) {
+			case Action.PLAY, Action.DISCARD -> {
+				int index = Action.index(action);
+				int drawIndex = Action.drawIndex(action);
+				boolean inHand = index >= 0 && index < handSize && drawIndex >= 0 && drawIndex < handSize;
+				return inHand ? GameError.NONE : GameError.BAD_INDEX;
+			}
+			case Action.NUMBERHINT, Action.COLORHINT -> {
+				if (board.getNumHints() <= 0) {
+					return GameError.NO_HINTS;
+				}
+				boolean numberHint = Action.type(action) == Action.NUMBERHINT;
+				int hint = Action.hint(action);
+				if (!numberHint && !Colors.isSuit(hint)) {
+					return GameError.BAD_HINT;
+				}
+				return hintMask(partnerHand, numberHint, hint) != 0 ? GameError.NONE : GameError.BAD_HINT;
+			}
+			default -> {
+				return GameError.ILLEGAL_COMMAND;
+			}
+		}
+	}
+
+	/**
+	 * Writes every action perform() would accept for the current player into buf.
+	 * @param buf Where to write the packed actions; MAX_LEGAL_ACTIONS entries are always enough
+	 * @return the number of actions written
+	 */
+	public int legalActions(int[] buf) {
+		return legalActions(hands[currentPlayer].size(), hands[1 - currentPlayer], board, buf);
+	}
+
+	/**
+	 * Writes every legal action into buf, from what a player can see: all plays and discards with every draw
+	 * index, then the number hints in increasing order, then the color hints.
+	 * @param handSize The size of the acting player's hand
+	 * @param partnerHand The other player's hand
+	 * @param board The board
+	 * @param buf Where to write the packed actions; MAX_LEGAL_ACTIONS entries are enough for hands of HAND_SIZE
+	 * @return the number of actions written
+	 */
+	public static int legalActions(int handSize, HandView partnerHand, BoardView board, int[] buf) {
+		int n = 0;
+		for (int i = 0; i < handSize; i++) {
+			for (int d = 0; d < handSize; d++) {
+				buf[n++] = Action.play(i, d);
+			}
+		}
+		for (int i = 0; i < handSize; i++) {
+			for (int d = 0; d < handSize; d++) {
+				buf[n++] = Action.discard(i, d);
+			}
+		}
+		if (board.getNumHints() > 0) {
+			int values = 0;
+			int colors = 0;
+			for (int i = 0; i < partnerHand.size(); i++) {
+				int id = partnerHand.getId(i);
+				values |= 1 << Card.valueOf(id);
+				colors |= 1 << Card.colorOf(id);
+			}
+			for (int v = Card.MIN_VALUE; v <= Card.MAX_VALUE; v++) {
+				if ((values & (1 << v)) != 0) {
+					buf[n++] = Action.numberHint(v);
+				}
+			}
+			for (int c = Colors.MIN_COLOR; c <= Colors.MAX_COLOR; c++) {
+				if ((colors & (1 << c)) != 0) {
+					buf[n++] = Action.colorHint(c);
+				}
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * @return a mask with bit i set for every index i of hand that matches the hinted number or color
+	 */
+	static int hintMask(HandView hand, boolean numberHint, int hint) {
+		int mask = 0;
+		for (int i = 0; i < hand.size(); i++) {
+			int id = hand.getId(i);
+			if ((numberHint ? Card.valueOf(id) : Card.colorOf(id)) == hint) {
+				mask |= 1 << i;
+			}
+		}
+		return mask;
+	}
+
+	public void switchPlayers() {
+		currentPlayer = 1 - currentPlayer;
+	}
+
+	/**
+	 * Checks for endgame conditions
+	 * @return True if players are out of fuses, out of cards, or have finished tableau; false otherwise.
+	 */
+	public boolean isOver() {
+		return (board.numFuses <= 0) || (deckCount == 0) || (board.getTableauScore() == 25);
+	}
+
+	/**
+	 * @return 0 if the players have run out of fuses; tableau sum otherwise.
+	 */
+	public int score() {
+		return board.numFuses <= 0 ? 0 : board.getTableauScore();
+	}
+
+	/**
+	 * @return a 64-bit Zobrist hash of the board, both hands and whose turn it is. The order of the undealt cards
+	 *  is left out, so states that differ only in what is still to be drawn hash the same.
+	 */
+	public long zobristHash() {
+		return board.zobristHash() ^ Zobrist.seat(0, hands[0].zobristHash()) ^ Zobrist.seat(1, hands[1].zobristHash())
+				^ Zobrist.turn(currentPlayer);
+	}
+
+	public int getCurrentPlayer() {
+		return currentPlayer;
+	}
+
+	public BoardView getBoard() {
+		return board.view();
+	}
+
+	public HandView getHand(int player) {
+		return hands[player].view();
+	}
+
+	public int getDeckCount() {
+		return deckCount;
+	}
+
+	/**
+	 * @return how many actions have been performed since the deal
+	 */
+	public int getTurns() {
+		return turns;
+	}
+
+	/**
+	 * @return how many hints have been given since the deal
+	 */
+	public int getHintsUsed() {
+		return hintsUsed;
+	}
+
+	/**
+	 * @return how many illegal plays have cost a fuse since the deal
+	 */
+	public int getMisplays() {
+		return misplays;
+	}
+
+	/**
+	 * @return the id of the card played or discarded by the last action, or -1 after a hint
+	 */
+	public int getLastCard() {
+		return lastCard;
+	}
+
+	/**
+	 * @return the id of the card drawn after the last play or discard, or -1 if none was drawn
+	 */
+	public int getLastDraw() {
+		return lastDraw;
+	}
+
+	/**
+	 * @return true if the last action was a legal play
+	 */
+	public boolean wasLastPlayLegal() {
+		return lastPlayLegal;
+	}
+
+	/**
+	 * @return for the last hint, a mask with bit i set for every index i it touched; 0 after a play or discard
+	 */
+	public int getLastHintMask() {
+		return lastHintMask;
+	}
+}
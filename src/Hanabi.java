@@ -1,102 +1,297 @@
 import java.util.ArrayList;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
 
 public class Hanabi {
+	private final GameState state;
 	private final Board boardState;
+	// The players asked for actions, or null when a driver asks for them itself; see Hanabi(GameListener, ...).
 	private final ArrayList<Player> players;
-	private final ArrayList<Hand> hands;
-	private final ArrayList<Card> deck;
+	// Who each seat's tell...() callbacks go to: its player, or a listener standing in for it.
+	private final GameListener[] listeners;
 
-	private int currentPlayer;
-	private int otherPlayer;
-	private boolean chatty;
+	// Scratch copy of the acting player's hand from before their play or discard.
+	private final Hand previousHand = new Hand();
+
+	// Where this game's events are traced, or null for none.
+	private EventLog events;
+
+	private long seed;
+	// When recording, the actions taken so far in GameLog's one-byte encoding.
+	private GameLogWriter recorder;
+	private byte[] actionLog;
+	private int actionCount;
+
+	// Why the last playSafely() game ended early, as a GameError code.
+	private int error;
+
+	// Enforces a deadline on each askAction() call, or null for none, and the names it knows each seat's bot by.
+	private MoveWatchdog watchdog;
+	private final String[] botNames = new String[2];
+
+	// Where this game's outcome is stored when it ends, or null for nowhere, and the strategy to store it under.
+	private ResultStoreWriter results;
+	private int strategyId;
 
 	/**
 	 * The basic constructor.
-	 * @param chatty True to print out all useful information about the game; false for speed of play.
+	 * @param chatty True to print out all useful information about the game, through EventLog.console(); false for speed of play.
 	 */
 	public Hanabi(boolean chatty, Player player1, Player player2) {
-		boardState = new Board();
+		this(chatty, player1, player2, new SplittableRandom().nextLong());
+	}
 
-		players = new ArrayList<>();
-		players.add(player1);
-		players.add(player2);
+	/**
+	 * Creates a game whose deck order is fully determined by seed.
+	 * @param chatty True to print out all useful information about the game, through EventLog.console(); false for speed of play.
+	 * @param seed The seed for the shuffle; games with the same seed deal the same cards.
+	 */
+	public Hanabi(boolean chatty, Player player1, Player player2, long seed) {
+		this(chatty, player1, player2, player1, player2, seed);
+	}
 
-		hands = new ArrayList<Hand>();
-		hands.add(new Hand());
-		hands.add(new Hand());
-
-		currentPlayer = 0;
-		otherPlayer = 1;
-
-		deck = new ArrayList<Card>();
-
-		// Loads deck with three of each 1, two of each 2-3-4, and one of each 5.
-		for (int i = 0; i < 5; i++) {
-			deck.add(new Card(i, 1));
-			deck.add(new Card(i, 1));
-			deck.add(new Card(i, 1));
-			deck.add(new Card(i, 2));
-			deck.add(new Card(i, 2));
-			deck.add(new Card(i, 3));
-			deck.add(new Card(i, 3));
-			deck.add(new Card(i, 4));
-			deck.add(new Card(i, 4));
-			deck.add(new Card(i, 5));
+	/**
+	 * Creates a game whose seats are only told what happens, for drivers in this package that ask for each action
+	 * themselves and carry it out through handleAction(), such as BotServer. The game is dealt exactly as
+	 * new Hanabi(false, player1, player2, seed) would deal it. With no Players to ask, play() cannot be used.
+	 */
+	Hanabi(GameListener listener1, GameListener listener2, long seed) {
+		this(false, null, null, listener1, listener2, seed);
+	}
+
+	private Hanabi(boolean chatty, Player player1, Player player2, GameListener listener1, GameListener listener2,
+			long seed) {
+		this.seed = seed;
+		state = new GameState();
+		boardState = state.board;
+
+		if (player1 != null) {
+			players = new ArrayList<>();
+			players.add(player1);
+			players.add(player2);
 		}
+		else {
+			players = null;
+		}
+		listeners = new GameListener[] {listener1, listener2};
 
-		shuffle();
+		shuffle(new SplittableRandom(seed));
 
 		// Deals five cards to both players.
-		for (int i = 0; i < 5; i++) {
-			try {
-				Card c = dealCard();
-				hands.get(0).add(0, c);
-				c = dealCard();
-				hands.get(1).add(0, c);
-			}
-			catch (Exception e) {
-				e.printStackTrace();
-				return;
-			}
+		state.deal();
+
+		if (chatty) {
+			events = EventLog.console();
+		}
+	}
 
+	/**
+	 * Starts a new game on the deck for seed, reusing this game's storage and its two players, which are
+	 * reset(). The game plays out exactly as new Hanabi(chatty, player1, player2, seed) would; recording and
+	 * tracing carry on as they were set.
+	 */
+	public void reset(long seed) {
+		this.seed = seed;
+		state.reset();
+		shuffle(new SplittableRandom(seed));
+		state.deal();
+		if (players != null) {
+			players.get(0).reset();
+			players.get(1).reset();
 		}
+		error = GameError.NONE;
+		actionCount = 0;
+	}
+
+	/**
+	 * Carries on the game in state, which the players are assumed to already know about. Used for playouts.
+	 * @param state The game to continue; play() advances it in place
+	 */
+	Hanabi(GameState state, Player player1, Player player2) {
+		this.seed = 0;
+		this.state = state;
+		boardState = state.board;
+
+		players = new ArrayList<>();
+		players.add(player1);
+		players.add(player2);
+		listeners = new GameListener[] {player1, player2};
+	}
+
+	/**
+	 * Records this game to the given log when it ends. Must be called before play().
+	 * @param recorder The log to append the game to; null to stop recording.
+	 */
+	public void setRecorder(GameLogWriter recorder) {
+		this.recorder = recorder;
+		actionLog = recorder == null ? null : new byte[GameLog.MAX_ACTIONS];
+		actionCount = 0;
+	}
+
+	/**
+	 * Stores this game's outcome to results when it ends, whether it finishes or is cut short.
+	 * @param results The store to append to; null to stop storing.
+	 * @param strategyId The id to store the game under, from ResultStoreWriter.strategyId()
+	 */
+	public void setResultStore(ResultStoreWriter results, int strategyId) {
+		this.results = results;
+		this.strategyId = strategyId;
+	}
+
+	/**
+	 * Traces this game's deal, every action and the outcome to events, which renders them in the background.
+	 * Must be called before play().
+	 * @param events The log to trace to; null to stop tracing. EventLog.console() is what chatty games use.
+	 */
+	public void setEventLog(EventLog events) {
+		this.events = events;
+	}
+
+	/**
+	 * Runs every askAction() call of this game under watchdog's deadline. A player that overruns it makes the
+	 * watchdog's fallback move, or forfeits the game with a score of 0 and GameError.TIMEOUT.
+	 * The watchdog keeps its statistics under each player's class name.
+	 * @param watchdog The watchdog to ask through; null to call the players directly.
+	 */
+	public void setWatchdog(MoveWatchdog watchdog) {
+		setWatchdog(watchdog, players.get(0).getClass().getName(), players.get(1).getClass().getName());
+	}
+
+	/**
+	 * Runs every askAction() call of this game under watchdog's deadline, as above, keeping its statistics for
+	 * each seat's player under the name given.
+	 */
+	public void setWatchdog(MoveWatchdog watchdog, String name0, String name1) {
+		this.watchdog = watchdog;
+		botNames[0] = name0;
+		botNames[1] = name1;
+	}
+
+	/**
+	 * @return the seed this game's deck was shuffled with
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return how many actions have been taken this game
+	 */
+	public int getTurns() {
+		return state.getTurns();
+	}
 
-		currentPlayer = 0;
-		otherPlayer = 1;
+	/**
+	 * @return how many hints have been given this game
+	 */
+	public int getHintsUsed() {
+		return state.getHintsUsed();
+	}
 
-		this.chatty = chatty;
+	/**
+	 * @return how many illegal plays have cost a fuse this game
+	 */
+	public int getMisplays() {
+		return state.getMisplays();
+	}
+
+	/**
+	 * @return the live game state, for drivers in this package that run the game loop themselves, such as
+	 *  BotServer; it must not be changed except through handleAction()
+	 */
+	GameState getState() {
+		return state;
+	}
+
+	/**
+	 * @return a copy of the current game state, which play() will not change
+	 */
+	public GameState snapshot() {
+		return state.snapshot();
+	}
+
+	/**
+	 * Puts the game back in the state of an earlier snapshot(). The Players are not told, so their own
+	 * knowledge is not rolled back; this is meant for driving a game through handleAction() from a search.
+	 * The turn, hint and misplay counts come back with the snapshot, and when recording, the actions taken
+	 * since it are dropped from the record, so the recorded game and stored result are the line actually played.
+	 * @param snapshot A snapshot of this game, taken since the deal
+	 */
+	public void restore(GameState snapshot) {
+		state.restore(snapshot);
+		if (actionLog != null) {
+			actionCount = state.getTurns();
+		}
 	}
 
 	/**
 	 * Called once to play a full game of Hanabi.
-	 * @return 0 if the players run out of fuses or there is an exception; tableau sum otherwise.
+	 * @return 0 if the players run out of fuses, there is an exception, or a player forfeits by overrunning the
+	 *  watchdog; tableau sum otherwise.
+	 * @throws IllegalArgumentException if a player chooses an illegal action
 	 */
 	public int play() {
-		
-		if (chatty) {
-			System.out.println("\nPlayer 0 hand: " + hands.get(0));
-			System.out.println("Player 1 hand: " + hands.get(1));
-			System.out.println("Board state: \n" + boardState);
+		return run(false);
+	}
+
+	/**
+	 * Plays a full game like play(), but ends it with a score of 0 instead of throwing when a player chooses an
+	 * illegal action or throws an exception. getError() then tells what went wrong. Games cut short this way are
+	 * not recorded.
+	 * @return 0 if the players run out of fuses or a player misbehaves; tableau sum otherwise.
+	 */
+	public int playSafely() {
+		return run(true);
+	}
+
+	/**
+	 * @return the GameError code that ended the last game early, or GameError.NONE
+	 */
+	public int getError() {
+		return error;
+	}
+
+	private int run(boolean isolated) {
+		if (players == null) {
+			throw new IllegalStateException("Hanabi.play() - no Players to ask; this game is driven through " +
+					"handleAction()");
+		}
+		error = GameError.NONE;
+
+		if (events != null) {
+			events.gameStart(seed, state);
 		}
 
 		while (true) {
 
-			String response = players.get(currentPlayer).ask(hands.get(currentPlayer).size(),
-					new Hand(hands.get(otherPlayer)), new Board(boardState)); // pass copies to avoid malicious editing
-			parseAndHandleResponse(response);
-			if (gameEnded()) {
-				if (boardState.numFuses <= 0) {
-					if (chatty) {
-						System.out.println("Ran out of fuses; Score: 0");
+			if (!isolated) {
+				int action = askAction();
+				if (action == MoveWatchdog.TIMED_OUT) {
+					return fail(GameError.TIMEOUT);
+				}
+				handleAction(action);
+			}
+			else {
+				try {
+					int action = askAction();
+					if (action == MoveWatchdog.TIMED_OUT) {
+						return fail(GameError.TIMEOUT);
+					}
+					int check = state.check(action);
+					if (check != GameError.NONE) {
+						return fail(check);
 					}
-					return 0;
+					handleAction(action);
 				}
-				if (chatty) {
-					System.out.println("Game ended; Score: " + boardState.getTableauScore());
+				catch (RuntimeException e) {
+					return fail(GameError.PLAYER_EXCEPTION);
+				}
+			}
+			if (gameEnded()) {
+				int score = boardState.numFuses <= 0 ? 0 : boardState.getTableauScore();
+				if (events != null) {
+					events.gameEnd(score, state);
 				}
-				return boardState.getTableauScore();
+				return record(score);
 			}
 			switchPlayers();
 
@@ -104,17 +299,64 @@ public class Hanabi {
 
 	}
 
+	/**
+	 * Asks the current player for their action, through the watchdog if there is one.
+	 * @return the action, or MoveWatchdog.TIMED_OUT if the player overran and forfeits
+	 */
+	private int askAction() {
+		int currentPlayer = state.currentPlayer;
+		Player player = players.get(currentPlayer);
+		int handSize = state.hands[currentPlayer].size();
+		// pass read-only views to avoid malicious editing
+		HandView partnerHand = state.getHand(1 - currentPlayer);
+		BoardView board = boardState.view();
+		if (watchdog == null) {
+			return player.askAction(handSize, partnerHand, board);
+		}
+		return watchdog.ask(botNames[currentPlayer], player, handSize, partnerHand, board);
+	}
+
+	/**
+	 * Ends a game early; only a timeout can end a play() game this way.
+	 * @return 0, the score of a failed game
+	 */
+	private int fail(int error) {
+		this.error = error;
+		if (events != null) {
+			events.gameError(error, state);
+		}
+		storeResult(0);
+		return 0;
+	}
+
 	/**
 	 * Shuffle the deck using the Fisher-Yates shuffling algorithm.
 	 */
 	public void shuffle() {
-		Random rand = new Random();
-		for (int i = deck.size() - 1; i >= 1; i--) {
-			int j = rand.nextInt(i + 1);
-			Card temp = deck.get(j);
-			deck.set(j, deck.get(i));
-			deck.set(i, temp);
-		}
+		shuffle(new SplittableRandom());
+	}
+
+	/**
+	 * Shuffle the deck using the Fisher-Yates shuffling algorithm, drawing from rand.
+	 */
+	public void shuffle(SplittableRandom rand) {
+		state.shuffle(rand);
+	}
+
+	/**
+	 * @return true if action is legal for the current player; handleAction() throws on the others
+	 */
+	public boolean isLegal(int action) {
+		return state.isLegal(action);
+	}
+
+	/**
+	 * Writes every legal action for the current player into buf.
+	 * @param buf At least GameState.MAX_LEGAL_ACTIONS long
+	 * @return the number of actions written
+	 */
+	public int legalActions(int[] buf) {
+		return state.legalActions(buf);
 	}
 
 	/**
@@ -123,222 +365,110 @@ public class Hanabi {
 	 * @throws IllegalArgumentException In case of malformed Strings
 	 */
 	public void parseAndHandleResponse(String response) throws IllegalArgumentException {
-		Scanner scn = new Scanner(response);
-		if (!scn.hasNext()) {
-			scn.close();
-			throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Empty response string");
+		handleAction(Action.parse(response));
+	}
+
+	/**
+	 * Performs an action from a Player.askAction() call and the appropriate Player.tell...() calls
+	 * @param action The packed action, as built by the Action factory methods
+	 * @throws IllegalArgumentException In case of illegal actions
+	 */
+	public void handleAction(int action) throws IllegalArgumentException {
+		int currentPlayer = state.currentPlayer;
+		int otherPlayer = 1 - currentPlayer;
+		Hand hand = state.hands[currentPlayer];
+		int type = Action.type(action);
+		if (type == Action.PLAY || type == Action.DISCARD) {
+			previousHand.copyFrom(hand);
 		}
-		String command = scn.next();
-
-        switch (command) {
-            case "PLAY" -> {
-                // Error if no play index specified.
-                if (!scn.hasNextInt()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Play with no play index provided");
-                }
-                // Error if play index out of range.
-                int playIndex = scn.nextInt();
-                if (playIndex < 0 || playIndex >= hands.get(currentPlayer).size()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Play index " + playIndex +
-                            "is outside player's hand size of " + hands.get(currentPlayer).size());
-                }
-                // Error if no play index specified.
-                if (!scn.hasNextInt()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Play with no draw index provided");
-                }
-                // Error if draw index out of range.
-                int drawIndex = scn.nextInt();
-                if (drawIndex < 0 || drawIndex >= hands.get(currentPlayer).size()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Draw index " + drawIndex +
-                            "is outside player's hand size of " + hands.get(currentPlayer).size());
-                }
-                // No errors.
-                Hand oldHand = new Hand(hands.get(currentPlayer));
-                Card play = hands.get(currentPlayer).remove(playIndex);
-                boolean legalPlay = boardState.play(play);
-                Card draw = null;
-                if (!deck.isEmpty()) {
-                    draw = dealCard();
-                    hands.get(currentPlayer).add(drawIndex, draw);
-                }
-                Hand newHand = new Hand(hands.get(currentPlayer));
-                if (chatty) {
-                    System.out.print("Player " + currentPlayer + " plays " + play + " from position "
-                            + playIndex);
-                    if (draw != null) {
-                        System.out.println(" and draws a card to index " + drawIndex);
-                    } else {
-                        System.out.println(" and cannot draw because the deck is empty.");
-                    }
-                    if (!legalPlay) {
-                        System.out.println("The play is illegal; removing a fuse.");
-                    }
-                    System.out.println("\nPlayer 0 hand: " + hands.get(0));
-                    System.out.println("Player 1 hand: " + hands.get(1));
-                    System.out.println("Board state: \n" + boardState);
-                }
-                players.get(otherPlayer).tellPartnerPlay(oldHand, play, playIndex, draw, drawIndex, newHand,
-                        legalPlay, new Board(boardState));
-                players.get(currentPlayer).tellYourPlay(play, playIndex, drawIndex, draw != null,
-                        legalPlay, new Board(boardState));
 
-            }
-            case "DISCARD" -> {
-                // Error if no discard index specified.
-                if (!scn.hasNextInt()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Discard with no discard index provided");
-                }
-                // Error if discard index out of range.
-                int discardIndex = scn.nextInt();
-                if (discardIndex < 0 || discardIndex >= hands.get(currentPlayer).size()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Discard index " + discardIndex +
-                            "is outside player's hand size of " + hands.get(currentPlayer).size());
-                }
-                // Error if no draw index specified.
-                if (!scn.hasNextInt()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Discard with no draw index provided");
-                }
-                // Error if draw index out of range.
-                int drawIndex = scn.nextInt();
-                if (drawIndex < 0 || drawIndex >= hands.get(currentPlayer).size()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Draw index " + drawIndex +
-                            "is outside player's hand size of " + hands.get(currentPlayer).size());
-                }
-                // No errors.
-                Hand oldHand = new Hand(hands.get(currentPlayer));
-                Card discard = hands.get(currentPlayer).remove(discardIndex);
-                boardState.discard(discard);
-                if (boardState.numHints < boardState.MAX_HINTS) {
-                    boardState.numHints++;
-                }
-                Card draw = null;
-                if (!deck.isEmpty()) {
-                    draw = dealCard();
-                    hands.get(currentPlayer).add(drawIndex, draw);
-                }
-                Hand newHand = new Hand(hands.get(currentPlayer));
-                if (chatty) {
-                    System.out.print("Player " + currentPlayer + " discards " + discard + " from position "
-                            + discardIndex);
-                    if (draw != null) {
-                        System.out.println(" and draws a card to index " + drawIndex);
-                    } else {
-                        System.out.println(" and cannot draw because the deck is empty.");
-                    }
-                    System.out.println("\nPlayer 0 hand: " + hands.get(0));
-                    System.out.println("Player 1 hand: " + hands.get(1));
-                    System.out.println("Board state: \n" + boardState);
-                }
-                players.get(otherPlayer).tellPartnerDiscard(oldHand, discard, discardIndex, draw, drawIndex, newHand,
-                        new Board(boardState));
-                players.get(currentPlayer).tellYourDiscard(discard, discardIndex, drawIndex, draw != null, new Board(boardState));
-            }
-            case "NUMBERHINT" -> {
-                // Error if out of hints.
-                if (boardState.numHints <= 0) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Numberhint with no hints remaining");
-                }
-                // Error if no number specified.
-                if (!scn.hasNextInt()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Numberhint with no number provided");
-                }
-                // Error if specified number not in other player's hand.
-                int number = scn.nextInt();
-                ArrayList<Integer> indices = new ArrayList<Integer>();
-                for (int i = 0; i < hands.get(otherPlayer).size(); i++) {
-                    if (hands.get(otherPlayer).get(i).value == number) {
-                        indices.add(i);
-                    }
-                }
-                if (indices.isEmpty()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Numberhint with number " + number +
-                            " not in other player's hand.");
-                }
-                // No errors. Tell other player.
-                if (chatty) {
-                    System.out.println("Player " + currentPlayer + " hints the number " + number + " for indices "
-                            + indices);
-                    System.out.println("\nPlayer 0 hand: " + hands.get(0));
-                    System.out.println("Player 1 hand: " + hands.get(1));
-                    System.out.println("Board state: \n" + boardState);
-                }
-                // And decrement hints.
-                boardState.numHints--;
-                players.get(otherPlayer).tellNumberHint(number, indices, new Hand(hands.get(currentPlayer)), new Board(boardState));
+		state.perform(action);
+		if (events != null) {
+			events.action(currentPlayer, action, state);
+		}
 
+        switch (type) {
+            case Action.PLAY -> {
+                int playIndex = Action.index(action);
+                int drawIndex = Action.drawIndex(action);
+                Card play = Card.ofId(state.getLastCard());
+                boolean legalPlay = state.wasLastPlayLegal();
+                Card draw = state.getLastDraw() < 0 ? null : Card.ofId(state.getLastDraw());
+                listeners[otherPlayer].tellPartnerPlay(previousHand.view(), play, playIndex, draw, drawIndex,
+                        hand.view(), legalPlay, boardState.view());
+                listeners[currentPlayer].tellYourPlay(play, playIndex, drawIndex, draw != null,
+                        legalPlay, boardState.view());
+
+            }
+            case Action.DISCARD -> {
+                int discardIndex = Action.index(action);
+                int drawIndex = Action.drawIndex(action);
+                Card discard = Card.ofId(state.getLastCard());
+                Card draw = state.getLastDraw() < 0 ? null : Card.ofId(state.getLastDraw());
+                listeners[otherPlayer].tellPartnerDiscard(previousHand.view(), discard, discardIndex, draw, drawIndex,
+                        hand.view(), boardState.view());
+                listeners[currentPlayer].tellYourDiscard(discard, discardIndex, drawIndex, draw != null, boardState.view());
             }
-            case "COLORHINT" -> {
-                // Error if out of hints.
-                if (boardState.numHints <= 0) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Colorhint with no hints remaining");
-                }
-                // Error if no color specified.
-                if (!scn.hasNextInt()) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Colorhint with no color provided");
-                }
-                // Error if specified color is not a real color
-                int color = scn.nextInt();
-                if ((color != Colors.RED) && (color != Colors.YELLOW) && (color != Colors.GREEN) && (color != Colors.BLUE)
-                        && (color != Colors.WHITE)) {
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Colorhint with bad color " + color);
-                }
-                // Error if specified color not in other player's hand.
-                ArrayList<Integer> indices = new ArrayList<Integer>();
-                for (int i = 0; i < hands.get(otherPlayer).size(); i++) {
-                    if (hands.get(otherPlayer).get(i).color == color) {
-                        indices.add(i);
-                    }
-                }
-                if (indices.isEmpty()) {
-                    scn.close();
-                    scn.close();
-                    throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - Colorhint with color " + color +
-                            " not in other player's hand.");
-                }
-                // No errors. Tell other player.
-                if (chatty) {
-                    System.out.println("Player " + currentPlayer + " hints the color " + Colors.suitColor(color) +
-                            " for indices " + indices);
-                    System.out.println("\nPlayer 0 hand: " + hands.get(0));
-                    System.out.println("Player 1 hand: " + hands.get(1));
-                    System.out.println("Board state: \n" + boardState);
-                }
-                // And decrement hints.
-                boardState.numHints--;
-                players.get(otherPlayer).tellColorHint(color, indices, new Hand(hands.get(currentPlayer)), new Board(boardState));
+            case Action.NUMBERHINT -> {
+                int number = Action.hint(action);
+                ArrayList<Integer> indices = hintIndices(state.getLastHintMask());
+                // Tell other player.
+                listeners[otherPlayer].tellNumberHint(number, indices, hand.view(), boardState.view());
 
             }
+            case Action.COLORHINT -> {
+                int color = Action.hint(action);
+                ArrayList<Integer> indices = hintIndices(state.getLastHintMask());
+                // Tell other player.
+                listeners[otherPlayer].tellColorHint(color, indices, hand.view(), boardState.view());
 
-            // Bad command.
-            default -> {
-                scn.close();
-                throw new IllegalArgumentException("Hanabi.parseAndHandleResponse() - illegal command " + command);
             }
         }
-		scn.close();
+		if (actionLog != null) {
+			actionLog[actionCount++] = GameLog.encodeAction(action);
+		}
+	}
+
+	/**
+	 * @return the hand indices set in mask, in increasing order
+	 */
+	static ArrayList<Integer> hintIndices(int mask) {
+		ArrayList<Integer> indices = new ArrayList<Integer>();
+		for (int i = 0; mask >> i != 0; i++) {
+			if ((mask & (1 << i)) != 0) {
+				indices.add(i);
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * Appends the finished game to the recorder, if there is one.
+	 * @return score, for convenience
+	 */
+	private int record(int score) {
+		if (recorder != null) {
+			recorder.append(seed, state.deck, actionLog, actionCount, score);
+		}
+		storeResult(score);
+		return score;
+	}
+
+	/**
+	 * Appends the game's outcome to the result store, if there is one.
+	 */
+	private void storeResult(int score) {
+		if (results != null) {
+			results.append(seed, score, state.getTurns(), boardState.numFuses, state.getHintsUsed(),
+					state.getMisplays(), error, strategyId);
+		}
 	}
 
 	/**
 	 * Swaps who the current player is.
 	 */
 	public void switchPlayers() {
-		int temp = currentPlayer;
-		currentPlayer = otherPlayer;
-		otherPlayer = temp;
+		state.switchPlayers();
 	}
 
 	/**
@@ -347,12 +477,7 @@ public class Hanabi {
 	 * @throws IllegalStateException if the deck is empty
 	 */
 	public Card dealCard() {
-		if (deck.isEmpty()) {
-			throw new IllegalStateException("Hanabi.dealCard() - Dealing from an empty deck");
-		}
-		Card c = deck.remove(deck.size() - 1);
-		boardState.deckSize--;
-		return c;
+		return Card.ofId(state.dealCardId());
 	}
 
 	/**
@@ -360,7 +485,7 @@ public class Hanabi {
 	 * @return True if players are out of fuses, out of cards, or have finished tableau; false otherwise.
 	 */
 	public boolean gameEnded() {
-		return (boardState.numFuses <= 0) || (deck.size() == 0) || (boardState.getTableauScore() == 25);
+		return state.isOver();
 	}
 
 }
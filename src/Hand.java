@@ -1,29 +1,95 @@
-import java.util.ArrayList;
+import java.util.Arrays;
 
-public class Hand {
-	private final ArrayList<Card> cards;
+public class Hand implements HandView {
+	// Card ids, in hand order; only the first size entries are in use.
+	private int[] cards;
+	private int size;
+	// Zobrist hash of the cards in their positions, kept up to date by every change.
+	private long hash;
+
+	// Handed to players in place of this hand, so they can read it but not change it.
+	private final HandView view = new ReadOnlyView();
 	
 	public Hand() {
-		cards = new ArrayList<>();
+		cards = new int[5];
 	}
 	
 	public Hand(Hand h) {
-		cards = new ArrayList<>(h.cards);
+		cards = Arrays.copyOf(h.cards, h.cards.length);
+		size = h.size;
+		hash = h.hash;
+	}
+
+	/**
+	 * @return a read-only view backed by this hand
+	 */
+	public HandView view() {
+		return view;
+	}
+
+	/**
+	 * Removes every card from this hand.
+	 */
+	public void clear() {
+		size = 0;
+		hash = 0;
+	}
+
+	/**
+	 * Writes this hand into dst from offset: its size, then that many card ids.
+	 * @return the offset just past what was written
+	 */
+	int save(int[] dst, int offset) {
+		dst[offset] = size;
+		System.arraycopy(cards, 0, dst, offset + 1, size);
+		return offset + 1 + size;
+	}
+
+	/**
+	 * Overwrites this hand with one written by save().
+	 * @return the offset just past what was read
+	 */
+	int load(int[] src, int offset) {
+		clear();
+		int n = src[offset];
+		for (int i = 0; i < n; i++) {
+			addId(i, src[offset + 1 + i]);
+		}
+		return offset + 1 + n;
+	}
+
+	/**
+	 * Overwrites this hand with the cards of h, reusing this hand's storage where possible.
+	 */
+	public void copyFrom(Hand h) {
+		if (cards.length < h.size) {
+			cards = new int[h.cards.length];
+		}
+		System.arraycopy(h.cards, 0, cards, 0, h.size);
+		size = h.size;
+		hash = h.hash;
 	}
 	
+	@Override
 	public Card get(int index) {
-		if ((index >=0) && (index < cards.size())) {
-			return new Card(cards.get(index));
+		return Card.ofId(getId(index));
+	}
+
+	@Override
+	public int getId(int index) {
+		if ((index >=0) && (index < size)) {
+			return cards[index];
 		}
 		else {
-			throw new IllegalArgumentException("Hand.get() - index " + index + " out of bounds for hand size " + cards.size());
+			throw new IllegalArgumentException("Hand.get() - index " + index + " out of bounds for hand size " + size);
 		}
 	}
 
+	@Override
 	public int countMatches(Card c) {
 		int result = 0;
-		for (Card otherCard : cards) {
-			if (c.equals(otherCard)) {
+		for (int i = 0; i < size; i++) {
+			if (cards[i] == c.id()) {
 				result++;
 			}
 		}
@@ -31,46 +97,81 @@ public class Hand {
 	}
 	
 	public void add(int index, Card c) {
-		if ((index >= 0) && (index <= cards.size())) {	// Note we can add past the end of the array.
-			cards.add(index, c);
+		addId(index, c.id());
+	}
+
+	public void addId(int index, int id) {
+		if ((index >= 0) && (index <= size)) {	// Note we can add past the end of the array.
+			if (size == cards.length) {
+				cards = Arrays.copyOf(cards, size * 2);
+			}
+			for (int i = size - 1; i >= index; i--) {
+				hash ^= Zobrist.hand(i, cards[i]) ^ Zobrist.hand(i + 1, cards[i]);
+			}
+			hash ^= Zobrist.hand(index, id);
+			System.arraycopy(cards, index, cards, index + 1, size - index);
+			cards[index] = id;
+			size++;
 		}
 		else {
-			throw new IllegalArgumentException("Hand.add() - index " + index + " out of bounds for hand size " + cards.size());
+			throw new IllegalArgumentException("Hand.add() - index " + index + " out of bounds for hand size " + size);
 		}
 	}
 	
 	public Card remove(int index) {
-		if ((index >= 0) && (index < cards.size())) {
-			return cards.remove(index);
+		return Card.ofId(removeId(index));
+	}
+
+	public int removeId(int index) {
+		if ((index >= 0) && (index < size)) {
+			int id = cards[index];
+			hash ^= Zobrist.hand(index, id);
+			for (int i = index + 1; i < size; i++) {
+				hash ^= Zobrist.hand(i, cards[i]) ^ Zobrist.hand(i - 1, cards[i]);
+			}
+			System.arraycopy(cards, index + 1, cards, index, size - index - 1);
+			size--;
+			return id;
 		}
 		else {
-			throw new IllegalArgumentException("Hand.remove() - index " + index + " out of bounds for hand size " + cards.size());
+			throw new IllegalArgumentException("Hand.remove() - index " + index + " out of bounds for hand size " + size);
 		}
 	}
 	
+	@Override
 	public int size() {
-		return cards.size();
+		return size;
+	}
+
+	@Override
+	public Hand snapshot() {
+		return new Hand(this);
+	}
+
+	@Override
+	public long zobristHash() {
+		return hash;
 	}
 	
 	@Override
 	public String toString() {
-		if (cards.size() == 0) {
+		if (size == 0) {
 			return "Empty";
 		}
-		else if (cards.size() == 1) {
-			return cards.get(0).toString();
+		else if (size == 1) {
+			return get(0).toString();
 		}
-		else if (cards.size() == 2) {
-			return cards.get(0).toString() + " and " + cards.get(1).toString();
+		else if (size == 2) {
+			return get(0).toString() + " and " + get(1).toString();
 		}
 		else {
 			StringBuilder result = new StringBuilder();
-			for (int i = 0; i < cards.size(); i++) {
-				result.append(cards.get(i).toString());
-				if (i < cards.size() - 1) {
+			for (int i = 0; i < size; i++) {
+				result.append(get(i).toString());
+				if (i < size - 1) {
 					result.append(", ");
 				}
-				if (i == cards.size() - 2) {
+				if (i == size - 2) {
 					result.append("and ");
 				}
 			}
@@ -84,15 +185,55 @@ public class Hand {
 			return false;
 		}
 		Hand h = (Hand) o;
-		return this.cards.equals(h.cards);
+		return Arrays.equals(this.cards, 0, this.size, h.cards, 0, h.size);
 	}
 
 	@Override
 	public int hashCode() {
 		int result = 1;
-		for (Card c: cards) {
-			result = 31 * result + c.hashCode();
+		for (int i = 0; i < size; i++) {
+			result = 31 * result + get(i).hashCode();
 		}
 		return result;
 	}
+
+	/**
+	 * Forwards every read to the enclosing hand; it has no way to reach the hand's mutators.
+	 */
+	private final class ReadOnlyView implements HandView {
+		@Override
+		public Card get(int index) {
+			return Hand.this.get(index);
+		}
+
+		@Override
+		public int getId(int index) {
+			return Hand.this.getId(index);
+		}
+
+		@Override
+		public int countMatches(Card c) {
+			return Hand.this.countMatches(c);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Hand snapshot() {
+			return new Hand(Hand.this);
+		}
+
+		@Override
+		public long zobristHash() {
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			return Hand.this.toString();
+		}
+	}
 }
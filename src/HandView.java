@@ -0,0 +1,27 @@
+/**
+ * A read-only view of a hand of cards.
+ * <p>
+ * Like BoardView, this is backed by the live hand; call snapshot() to keep a copy that will not change.
+ */
+public interface HandView {
+	Card get(int index);
+
+	/**
+	 * @return the id of the card at index, as given by Card.id()
+	 */
+	int getId(int index);
+
+	int countMatches(Card c);
+
+	int size();
+
+	/**
+	 * @return an independent copy of the hand
+	 */
+	Hand snapshot();
+
+	/**
+	 * @return a 64-bit Zobrist hash of the cards and their order; equal hands hash the same
+	 */
+	long zobristHash();
+}
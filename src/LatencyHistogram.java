@@ -0,0 +1,116 @@
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A log-linear histogram of durations in nanoseconds, in the style of HdrHistogram.
+ * <p>
+ * Values below 32 get a bucket each; above that every power of two is split into 16 buckets, so any recorded
+ * value is reported to within about 6%. Values beyond MAX_TRACKABLE are counted in the top bucket.
+ * <p>
+ * Every thread records into its own stripe of plain counters, so recording never contends; the stripes are
+ * added up when the histogram is read. Reads are only exact once the recording threads have finished, as at
+ * the end of a Driver run.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	public static final long MAX_TRACKABLE = 1L << 40;	// about 18 minutes
+	private static final int NUM_BUCKETS = indexOf(MAX_TRACKABLE - 1) + 1;
+
+	private final Queue<long[]> stripes = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<long[]> stripe = ThreadLocal.withInitial(() -> {
+		long[] counts = new long[NUM_BUCKETS];
+		stripes.add(counts);
+		return counts;
+	});
+
+	public void record(long nanos) {
+		stripe.get()[indexOf(Math.min(Math.max(nanos, 0), MAX_TRACKABLE - 1))]++;
+	}
+
+	/**
+	 * @return the bucket holding value: value itself below SUB_BUCKETS, then 16 buckets per power of two
+	 */
+	private static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return HALF_SUB_BUCKETS * shift + (int) (value >> shift);
+	}
+
+	/**
+	 * @return the smallest value that falls in the given bucket
+	 */
+	private static long lowestValueAt(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / HALF_SUB_BUCKETS - 1;
+		return (long) (index - HALF_SUB_BUCKETS * shift) << shift;
+	}
+
+	private long[] merged() {
+		long[] total = new long[NUM_BUCKETS];
+		for (long[] counts : stripes) {
+			for (int i = 0; i < NUM_BUCKETS; i++) {
+				total[i] += counts[i];
+			}
+		}
+		return total;
+	}
+
+	public long count() {
+		long result = 0;
+		for (long c : merged()) {
+			result += c;
+		}
+		return result;
+	}
+
+	/**
+	 * @param percentile From 0 to 100
+	 * @return the largest value that falls in the same bucket as the given percentile, or 0 if nothing has been
+	 *  recorded
+	 */
+	public long percentile(double percentile) {
+		long[] counts = merged();
+		long total = 0;
+		for (long c : counts) {
+			total += c;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return lowestValueAt(i + 1) - 1;
+			}
+		}
+		return MAX_TRACKABLE - 1;
+	}
+
+	/**
+	 * Clears every stripe. Only safe while nothing is recording.
+	 */
+	public void reset() {
+		for (long[] counts : stripes) {
+			Arrays.fill(counts, 0);
+		}
+	}
+
+	/**
+	 * @return the count and the usual percentiles, in microseconds
+	 */
+	@Override
+	public String toString() {
+		return String.format("count %d, p50 %.1fus, p90 %.1fus, p99 %.1fus, p99.9 %.1fus, max %.1fus",
+				count(), percentile(50) / 1e3, percentile(90) / 1e3, percentile(99) / 1e3, percentile(99.9) / 1e3,
+				percentile(100) / 1e3);
+	}
+}
@@ -0,0 +1,386 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A player that chooses each move by simulation.
+ * <p>
+ * For every legal action it plays out many games from the current position and picks the action with the best
+ * average score. Each playout samples a deal of the cards this player cannot see, consistent with its
+ * CardKnowledge, then plays the rest of the game with the rule-based Player on both sides. Every action is tried
+ * on the same deals, and the rule-based Player's own choice is kept unless another action beats it by more than
+ * the noise. The playouts for a move are spread across a fork-join pool, so a single decision can use every core.
+ * <p>
+ * The knowledge that the rule-based Player keeps is tracked by the inherited tell...() methods, so the playouts
+ * start from what this player actually knows.
+ */
+public class MonteCarloPlayer extends Player {
+	public static final int DEFAULT_ROLLOUTS = 200;
+
+	// Playouts of each action per round; the time budget is checked between rounds.
+	private static final int ROUND_SIZE = 16;
+	// Playouts handled by a single fork-join task without splitting further.
+	private static final int TASK_SIZE = 8;
+	// Tries at dealing a hand that fits our knowledge, before settling for one that only fits the card counts.
+	private static final int MAX_DEAL_ATTEMPTS = 100;
+	// Standard errors an action's gain over the rule-based choice must clear before we take it instead.
+	private static final double SIGNIFICANCE = 2.0;
+
+	private final int rolloutsPerAction;
+	private final long nanosPerMove;
+	private final ForkJoinPool pool;
+	// Deals are drawn from rand, which every game starts afresh from seed.
+	private final long seed;
+	private SplittableRandom rand;
+
+	/**
+	 * Creates a player that runs DEFAULT_ROLLOUTS playouts of each action on the common pool, with no time limit.
+	 */
+	public MonteCarloPlayer() {
+		this(DEFAULT_ROLLOUTS, 0, ForkJoinPool.commonPool(), new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * @param rolloutsPerAction The most playouts to run for each candidate action
+	 * @param millisPerMove The time to stop starting new rounds of playouts after; 0 for no limit. At least one
+	 *  round is always run.
+	 * @param pool The pool to run playouts on
+	 * @param seed The seed for dealing the unseen cards
+	 */
+	public MonteCarloPlayer(int rolloutsPerAction, long millisPerMove, ForkJoinPool pool, long seed) {
+		if (rolloutsPerAction <= 0 || millisPerMove < 0) {
+			throw new IllegalArgumentException("MonteCarloPlayer() - bad budget of " + rolloutsPerAction +
+					" rollouts in " + millisPerMove + " ms");
+		}
+		this.rolloutsPerAction = rolloutsPerAction;
+		this.nanosPerMove = millisPerMove * 1_000_000;
+		this.pool = pool;
+		this.seed = seed;
+		this.rand = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Also starts the deals over from the seed, so each game plays the same whatever this player played before.
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+		rand = new SplittableRandom(seed);
+	}
+
+	@Override
+	public int askAction(int yourHandSize, HandView partnerHand, BoardView boardState) {
+		long start = System.nanoTime();
+		int[] candidates = candidateActions(yourHandSize, partnerHand, boardState);
+		int[] unseen = unseenCards(partnerHand, boardState);
+		int[] options = handOptions(yourHandSize, boardState);
+		int ruleAction = ruleAction(yourHandSize, partnerHand, boardState);
+		GameState position = position(partnerHand, boardState);
+
+		// scores[d * candidates.length + c] is the playout of candidate c on deal d.
+		int[] scores = new int[rolloutsPerAction * candidates.length];
+		int deals = 0;
+		while (deals < rolloutsPerAction && (deals == 0 || nanosPerMove == 0 || System.nanoTime() - start < nanosPerMove)) {
+			int round = Math.min(ROUND_SIZE, rolloutsPerAction - deals);
+			pool.invoke(new Rollouts(position, options, unseen, candidates, rand.nextLong(), scores,
+					deals * candidates.length, (deals + round) * candidates.length));
+			deals += round;
+		}
+		int action = candidates[best(candidates, scores, deals, ruleAction)];
+		notePartnerHint(action, partnerHand, boardState);
+		if (DecisionMetrics.ENABLED) {
+			DecisionMetrics.recordAskNanos(System.nanoTime() - start);
+		}
+		return action;
+	}
+
+	/**
+	 * Picks the candidate with the best average playout, but only over the rule-based Player's own choice when
+	 * the paired difference between them is clearly more than noise. If the rule-based choice is not a legal
+	 * action, the first candidate stands in for it.
+	 * @return the index of the chosen candidate
+	 */
+	private static int best(int[] candidates, int[] scores, int deals, int ruleAction) {
+		int n = candidates.length;
+		int rule = 0;
+		for (int c = 0; c < n; c++) {
+			if (candidates[c] == ruleAction) {
+				rule = c;
+			}
+		}
+		int best = rule;
+		double bestGain = 0;
+		for (int c = 0; c < n; c++) {
+			double sum = 0;
+			double sumSquares = 0;
+			for (int d = 0; d < deals; d++) {
+				int diff = scores[d * n + c] - scores[d * n + rule];
+				sum += diff;
+				sumSquares += (double) diff * diff;
+			}
+			double gain = sum / deals;
+			double variance = deals > 1 ? (sumSquares - sum * gain) / (deals - 1) : 0;
+			if (gain > bestGain && gain > SIGNIFICANCE * Math.sqrt(variance / deals)) {
+				best = c;
+				bestGain = gain;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Works out the action the rule-based Player would take in our place. A hinted index is only acted on the
+	 * turn after the hint, so this also settles whether ours is still pending.
+	 * @return the rule-based action
+	 */
+	private int ruleAction(int yourHandSize, HandView partnerHand, BoardView boardState) {
+		Player rules = new Player(this);
+		rules.metered = false;
+		int action = rules.askAction(yourHandSize, partnerHand, boardState);
+		nextPlay = rules.nextPlay;
+		return action;
+	}
+
+	/**
+	 * Updates what we know our partner knows after giving them a hint, as the rule-based Player does.
+	 */
+	private void notePartnerHint(int action, HandView partnerHand, BoardView boardState) {
+		int type = Action.type(action);
+		if (type != Action.NUMBERHINT && type != Action.COLORHINT) {
+			return;
+		}
+		int hint = Action.hint(action);
+		ArrayList<Integer> indices = new ArrayList<>();
+		for (int i = 0; i < partnerHand.size(); i++) {
+			int id = partnerHand.getId(i);
+			if ((type == Action.NUMBERHINT ? Card.valueOf(id) : Card.colorOf(id)) == hint) {
+				indices.add(i);
+			}
+		}
+		if (type == Action.NUMBERHINT) {
+			updateKnowledgeNumberHint(hint, indices, boardState, partnerKnowledge);
+		}
+		else {
+			updateKnowledgeColorHint(hint, indices, boardState, partnerKnowledge);
+		}
+	}
+
+	/**
+	 * @return every legal action that draws to index 0, as the rule-based Player expects
+	 */
+	private static int[] candidateActions(int yourHandSize, HandView partnerHand, BoardView boardState) {
+		int[] actions = new int[GameState.MAX_LEGAL_ACTIONS];
+		int legal = GameState.legalActions(yourHandSize, partnerHand, boardState, actions);
+		int n = 0;
+		for (int i = 0; i < legal; i++) {
+			int type = Action.type(actions[i]);
+			if ((type != Action.PLAY && type != Action.DISCARD) || Action.drawIndex(actions[i]) == 0) {
+				actions[n++] = actions[i];
+			}
+		}
+		return Arrays.copyOf(actions, n);
+	}
+
+	/**
+	 * @return for each card in our hand, a mask of the card ids it could be. Our partner only hints the first card
+	 *  a hint touches when it is playable, so a card we have been hinted to play is assumed to be.
+	 */
+	private int[] handOptions(int yourHandSize, BoardView boardState) {
+		int[] options = new int[yourHandSize];
+		for (int i = 0; i < yourHandSize; i++) {
+			options[i] = knowledge.get(i).getOptions();
+		}
+		if (nextPlay >= 0 && nextPlay < yourHandSize
+				&& (options[nextPlay] & CardKnowledge.playableMask(boardState)) != 0) {
+			options[nextPlay] &= CardKnowledge.playableMask(boardState);
+		}
+		return options;
+	}
+
+	/**
+	 * @return how many copies of each card, by id, are in our hand or the deck; that is, not on the board or in
+	 *  our partner's hand
+	 */
+	private static int[] unseenCards(HandView partnerHand, BoardView boardState) {
+		int[] unseen = new int[Card.NUM_CARDS];
+		for (int id = 0; id < Card.NUM_CARDS; id++) {
+			int value = Card.valueOf(id);
+			unseen[id] = Card.numCopies(value) - boardState.getDiscardCount(id)
+					- (boardState.getTableau(Card.colorOf(id)) >= value ? 1 : 0);
+		}
+		for (int i = 0; i < partnerHand.size(); i++) {
+			unseen[partnerHand.getId(i)]--;
+		}
+		return unseen;
+	}
+
+	/**
+	 * @return the current position from our side, as player 0, with our hand and the deck still to be dealt
+	 */
+	private static GameState position(HandView partnerHand, BoardView boardState) {
+		GameState position = new GameState();
+		position.board.copyFrom(boardState.snapshot());
+		position.hands[1].copyFrom(partnerHand.snapshot());
+		position.deckCount = boardState.getDeckSize();
+		return position;
+	}
+
+	/**
+	 * Runs playouts from up to to, storing each in scores; playout k tries candidates[k % candidates.length].
+	 */
+	private final class Rollouts extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final GameState position;
+		private final int[] options;
+		private final int[] unseen;
+		private final int[] candidates;
+		private final long seed;
+		private final int[] scores;
+		private final int from;
+		private final int to;
+
+		Rollouts(GameState position, int[] options, int[] unseen, int[] candidates, long seed, int[] scores, int from,
+				int to) {
+			this.position = position;
+			this.options = options;
+			this.unseen = unseen;
+			this.candidates = candidates;
+			this.seed = seed;
+			this.scores = scores;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > TASK_SIZE) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Rollouts(position, options, unseen, candidates, seed, scores, from, mid),
+						new Rollouts(position, options, unseen, candidates, seed, scores, mid, to));
+				return;
+			}
+			for (int k = from; k < to; k++) {
+				// Every candidate is tried on the same deals, so their scores differ by the action and not the luck.
+				int deal = k / candidates.length;
+				scores[k] = rollout(position, options, unseen, candidates[k % candidates.length],
+						new SplittableRandom(seed + deal));
+			}
+		}
+	}
+
+	/**
+	 * Deals the unseen cards at random, takes action, and plays the game out with rule-based players.
+	 * @return the final score
+	 */
+	private int rollout(GameState position, int[] options, int[] unseen, int action, SplittableRandom rand) {
+		GameState state = position.snapshot();
+		dealUnseen(state, options, unseen, rand);
+
+		Player me = new Player(this);
+		me.metered = false;
+		Player partner = partnerModel();
+		Hanabi game = new Hanabi(state, me, partner);
+		game.handleAction(action);
+		int type = Action.type(action);
+		if (type == Action.NUMBERHINT) {
+			me.updateKnowledgeNumberHint(Action.hint(action), Hanabi.hintIndices(state.getLastHintMask()),
+					state.board, me.partnerKnowledge);
+		}
+		else if (type == Action.COLORHINT) {
+			me.updateKnowledgeColorHint(Action.hint(action), Hanabi.hintIndices(state.getLastHintMask()),
+					state.board, me.partnerKnowledge);
+		}
+		if (game.gameEnded()) {
+			return state.score();
+		}
+		game.switchPlayers();
+		try {
+			return game.play();
+		}
+		catch (IllegalArgumentException e) {
+			// The rule-based Player can get itself stuck, e.g. with no unhinted card to discard; count it as lost.
+			return 0;
+		}
+	}
+
+	/**
+	 * @return a rule-based player holding what we believe our partner knows
+	 */
+	private Player partnerModel() {
+		Player partner = new Player();
+		partner.metered = false;
+		for (int i = 0; i < partnerKnowledge.size(); i++) {
+			partner.knowledge.set(i, new CardKnowledge(partnerKnowledge.get(i)));
+		}
+		for (int i = 0; i < knowledge.size(); i++) {
+			partner.partnerKnowledge.set(i, new CardKnowledge(knowledge.get(i)));
+		}
+		return partner;
+	}
+
+	/**
+	 * Fills player 0's hand and the deck of state with a random deal of the unseen cards. The hand is dealt to fit
+	 * options where possible.
+	 */
+	private static void dealUnseen(GameState state, int[] options, int[] unseen, SplittableRandom rand) {
+		int handSize = options.length;
+		int[] counts = new int[Card.NUM_CARDS];
+		int[] hand = new int[handSize];
+		for (int attempt = 0; ; attempt++) {
+			System.arraycopy(unseen, 0, counts, 0, counts.length);
+			boolean dealt = true;
+			for (int i = 0; i < handSize && dealt; i++) {
+				hand[i] = pick(counts, attempt < MAX_DEAL_ATTEMPTS ? options[i] : CardKnowledge.ALL_CARDS, rand);
+				if (hand[i] < 0) {
+					dealt = false;
+				}
+				else {
+					counts[hand[i]]--;
+				}
+			}
+			if (dealt) {
+				break;
+			}
+			if (attempt == MAX_DEAL_ATTEMPTS) {
+				throw new IllegalStateException("MonteCarloPlayer.dealUnseen() - too few unseen cards to fill a hand");
+			}
+		}
+
+		Hand mine = state.hands[0];
+		mine.clear();
+		for (int i = 0; i < handSize; i++) {
+			mine.addId(i, hand[i]);
+		}
+		int n = 0;
+		for (int id = 0; id < Card.NUM_CARDS; id++) {
+			for (int k = 0; k < counts[id]; k++) {
+				state.deck[n++] = id;
+			}
+		}
+		state.shuffle(rand);
+	}
+
+	/**
+	 * @return the id of a card drawn from counts, among the ids set in options, or -1 if there are none
+	 */
+	private static int pick(int[] counts, int options, SplittableRandom rand) {
+		int total = 0;
+		for (int opts = options; opts != 0; opts &= opts - 1) {
+			total += counts[Integer.numberOfTrailingZeros(opts)];
+		}
+		if (total == 0) {
+			return -1;
+		}
+		int r = rand.nextInt(total);
+		for (int opts = options; ; opts &= opts - 1) {
+			int id = Integer.numberOfTrailingZeros(opts);
+			r -= counts[id];
+			if (r < 0) {
+				return id;
+			}
+		}
+	}
+}
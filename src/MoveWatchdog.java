@@ -0,0 +1,217 @@
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs each Player.askAction() call under a deadline, so that one slow bot cannot stall a batch of games.
+ * <p>
+ * Each call runs on a pooled daemon thread while the game's thread waits for it. A call that overruns the deadline
+ * is interrupted and counted as a timeout for its bot. What happens next depends on the fallback:
+ * DISCARD_OLDEST has the bot discard the card it has held longest (its chop block, if it has no hinted cards),
+ * and FORFEIT ends the game with GameError.TIMEOUT. Since a bot cannot safely be told about a move while its
+ * askAction() is still running, the fallback discard waits up to one more deadline for the call to notice the
+ * interrupt and return; if it does not, the game is forfeited anyway. A move therefore never takes much more than
+ * two deadlines.
+ * <p>
+ * A forfeited bot may still be running, so it should not be reused for another game. Latency is recorded per
+ * bot, under the name the caller asks it by, along with timeouts and forfeits; Hanabi.setWatchdog() takes the
+ * names of its two seats, so that differently configured bots of one class, such as a Tournament's, are counted
+ * apart. One watchdog can serve any number of games at once.
+ */
+public class MoveWatchdog implements Closeable {
+	public static final int DISCARD_OLDEST = 0;
+	public static final int FORFEIT = 1;
+
+	/**
+	 * What ask() returns when the game must be forfeited; never a valid action.
+	 */
+	public static final int TIMED_OUT = -1;
+
+	private final long nanosPerMove;
+	private final int fallback;
+	private final ExecutorService threads;
+	private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+	/**
+	 * Per-bot counters.
+	 */
+	private static final class Stats {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LongAdder timeouts = new LongAdder();
+		final LongAdder forfeits = new LongAdder();
+	}
+
+	/**
+	 * One askAction() call, run on a pooled thread.
+	 */
+	private static final class Ask implements Runnable {
+		final Player player;
+		final int handSize;
+		final HandView partnerHand;
+		final BoardView board;
+		final CountDownLatch done = new CountDownLatch(1);
+		int action;
+		RuntimeException failure;
+		// The thread running the call, while it runs; guarded by this.
+		private Thread runner;
+		private boolean cancelled;
+
+		Ask(Player player, int handSize, HandView partnerHand, BoardView board) {
+			this.player = player;
+			this.handSize = handSize;
+			this.partnerHand = partnerHand;
+			this.board = board;
+		}
+
+		@Override
+		public void run() {
+			synchronized (this) {
+				if (cancelled) {
+					done.countDown();
+					return;
+				}
+				runner = Thread.currentThread();
+			}
+			try {
+				action = player.askAction(handSize, partnerHand, board);
+			}
+			catch (RuntimeException e) {
+				failure = e;
+			}
+			catch (Error e) {
+				failure = new RuntimeException(e);
+			}
+			finally {
+				synchronized (this) {
+					runner = null;
+					// Don't let a late interrupt carry over to the next call run on this thread.
+					Thread.interrupted();
+				}
+				done.countDown();
+			}
+		}
+
+		/**
+		 * Interrupts the call if it is running, and stops it from starting if it is not.
+		 */
+		synchronized void cancel() {
+			cancelled = true;
+			if (runner != null) {
+				runner.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * @param millisPerMove The deadline for each askAction() call
+	 * @param fallback DISCARD_OLDEST or FORFEIT
+	 */
+	public MoveWatchdog(long millisPerMove, int fallback) {
+		if (millisPerMove <= 0 || (fallback != DISCARD_OLDEST && fallback != FORFEIT)) {
+			throw new IllegalArgumentException("MoveWatchdog() - bad deadline " + millisPerMove + " ms or fallback "
+					+ fallback);
+		}
+		this.nanosPerMove = TimeUnit.MILLISECONDS.toNanos(millisPerMove);
+		this.fallback = fallback;
+		this.threads = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "MoveWatchdog ask");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Asks player for its action, as Hanabi does, but gives up after the deadline.
+	 * @param name The name to record the bot's latency and timeouts under
+	 * @return the player's action; the fallback discard if it overran; or TIMED_OUT if the game must be forfeited
+	 * @throws RuntimeException whatever the player's askAction() threw
+	 */
+	public int ask(String name, Player player, int handSize, HandView partnerHand, BoardView board) {
+		Stats bot = stats.computeIfAbsent(name, key -> new Stats());
+		Ask ask = new Ask(player, handSize, partnerHand, board);
+		long start = System.nanoTime();
+		threads.execute(ask);
+		if (await(ask.done, nanosPerMove)) {
+			bot.latency.record(System.nanoTime() - start);
+			if (ask.failure != null) {
+				throw ask.failure;
+			}
+			return ask.action;
+		}
+
+		bot.timeouts.increment();
+		// The interrupt is only a request; a bot that ignores it keeps running on its pooled thread.
+		ask.cancel();
+		boolean finished = fallback == DISCARD_OLDEST && await(ask.done, nanosPerMove);
+		bot.latency.record(System.nanoTime() - start);
+		if (!finished) {
+			bot.forfeits.increment();
+			return TIMED_OUT;
+		}
+		return Action.discard(handSize - 1, 0);
+	}
+
+	/**
+	 * Waits up to nanos for latch, carrying on through interrupts of the waiting thread.
+	 * @return true if the latch was released in time
+	 */
+	private static boolean await(CountDownLatch latch, long nanos) {
+		long deadline = System.nanoTime() + nanos;
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * @return the latency of every ask() of the named bot, timeouts included
+	 */
+	public LatencyHistogram latency(String bot) {
+		Stats s = stats.get(bot);
+		return s == null ? new LatencyHistogram() : s.latency;
+	}
+
+	/**
+	 * @return how many asks of the named bot overran the deadline
+	 */
+	public long timeouts(String bot) {
+		Stats s = stats.get(bot);
+		return s == null ? 0 : s.timeouts.sum();
+	}
+
+	/**
+	 * @return one line per bot: its latency percentiles, timeouts and forfeits
+	 */
+	public String report() {
+		StringBuilder result = new StringBuilder();
+		stats.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> result.append(e.getKey())
+				.append(": ").append(e.getValue().latency).append("; ").append(e.getValue().timeouts.sum())
+				.append(" timeouts, ").append(e.getValue().forfeits.sum()).append(" forfeits\n"));
+		return result.toString();
+	}
+
+	/**
+	 * Interrupts any asks still running and stops taking new ones.
+	 */
+	@Override
+	public void close() {
+		threads.shutdownNow();
+	}
+}
@@ -0,0 +1,321 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Searches PlayerParams for the rule-based Player that scores best, with a genetic search.
+ * <p>
+ * Each generation, every candidate plays the same freshly seeded decks, so candidates are compared on the luck of
+ * the same deals. The decks are played in stages of STAGE_DECKS, with the games of every candidate still in the
+ * running spread over the common fork-join pool. After each stage, any candidate whose paired difference from
+ * the leader (see ComparisonResult) is more than REJECT_Z standard errors below zero is dropped from the rest of
+ * the generation, so clearly worse candidates cost a fraction of the games.
+ * <p>
+ * The best ELITES candidates go through to the next generation unchanged, where they are scored again on new
+ * decks, so a lucky score does not last. The rest of the next generation is bred from the better half of this
+ * one: rank-based selection, then crossover (the gamble threshold blended, the rule order by order crossover, the
+ * rest taken from either parent) and mutation.
+ * <p>
+ * After every generation the population is checkpointed to a text file, written to a temporary file and moved
+ * into place so a crash never leaves half a checkpoint. Every generation's decks and random choices are drawn
+ * from the master seed and the generation number alone, so a run resumed from a checkpoint carries on exactly as
+ * the uninterrupted run would have.
+ * <p>
+ * Usage: ParameterTuner generations [masterSeed [checkpointFile]]
+ */
+public class ParameterTuner {
+	public static final int DEFAULT_POPULATION = 16;
+	public static final int DEFAULT_DECKS = 8 * Driver.GAMES_PER_BLOCK;
+	// Decks every candidate still in the running plays between rounds of rejections.
+	public static final int STAGE_DECKS = Driver.GAMES_PER_BLOCK;
+	// Standard errors below the leader at which a candidate is dropped for the rest of its generation.
+	public static final double REJECT_Z = 3.0;
+
+	// Candidates that go through to the next generation unchanged.
+	private static final int ELITES = 2;
+	// Games played by a single task of the pool.
+	private static final int TASK_GAMES = 128;
+	// How far a mutation moves the gamble threshold, as a standard deviation.
+	private static final double GAMBLE_STEP = 0.05;
+	private static final String HEADER = "# Hanabi tuner v1";
+
+	private final int populationSize;
+	private final int decksPerGeneration;
+	private final long masterSeed;
+
+	/**
+	 * One member of a generation, and the scores it has played so far.
+	 */
+	private static final class Candidate {
+		final PlayerParams params;
+		// Its score on each deck of the generation; only the first decksPlayed are filled in.
+		final byte[] scores;
+		int decksPlayed;
+		boolean rejected;
+
+		Candidate(PlayerParams params, int numDecks) {
+			this.params = params;
+			this.scores = new byte[numDecks];
+		}
+
+		SimulationResult result() {
+			SimulationResult result = new SimulationResult();
+			for (int i = 0; i < decksPlayed; i++) {
+				result.add(scores[i]);
+			}
+			return result;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: ParameterTuner generations [masterSeed [checkpointFile]]");
+			return;
+		}
+		long masterSeed = args.length > 1 ? Long.parseLong(args[1]) : new SplittableRandom().nextLong();
+		ParameterTuner tuner = new ParameterTuner(DEFAULT_POPULATION, DEFAULT_DECKS, masterSeed);
+		System.out.println("Seed " + masterSeed);
+		PlayerParams best = tuner.tune(Integer.parseInt(args[0]), args.length > 2 ? Path.of(args[2]) : null,
+				System.out);
+		System.out.println("Best: " + best);
+	}
+
+	/**
+	 * @param populationSize Candidates per generation, at least ELITES + 1
+	 * @param decksPerGeneration Decks each candidate plays per generation, unless it is dropped early
+	 * @param masterSeed The seed every generation's decks and random choices are drawn from
+	 */
+	public ParameterTuner(int populationSize, int decksPerGeneration, long masterSeed) {
+		if (populationSize <= ELITES || decksPerGeneration <= 1) {
+			throw new IllegalArgumentException("ParameterTuner() - bad population " + populationSize + " or decks "
+					+ decksPerGeneration);
+		}
+		this.populationSize = populationSize;
+		this.decksPerGeneration = decksPerGeneration;
+		this.masterSeed = masterSeed;
+	}
+
+	/**
+	 * Runs the search up to the given number of generations, resuming from checkpoint if it holds a run with the
+	 * same settings.
+	 * @param checkpoint The file to checkpoint to and resume from; null to keep nothing
+	 * @param progress Where to report each generation's leader; null to report nothing
+	 * @return the best parameters of the last generation; PlayerParams.DEFAULT if none was run
+	 * @throws IOException if the checkpoint cannot be read or written, or is for different settings
+	 */
+	public PlayerParams tune(int generations, Path checkpoint, PrintStream progress) throws IOException {
+		int generation = 0;
+		PlayerParams best = PlayerParams.DEFAULT;
+		List<PlayerParams> population = firstPopulation();
+		if (checkpoint != null && Files.exists(checkpoint)) {
+			List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+			if (lines.size() != 3 + populationSize || !lines.get(0).equals(header())
+					|| !lines.get(1).startsWith("generation ") || !lines.get(2).startsWith("best ")) {
+				throw new IOException("ParameterTuner.tune() - " + checkpoint + " is not a checkpoint for "
+						+ header());
+			}
+			try {
+				generation = Integer.parseInt(lines.get(1).substring("generation ".length()));
+				best = PlayerParams.parse(lines.get(2).substring("best ".length()));
+				population.clear();
+				for (String line : lines.subList(3, lines.size())) {
+					population.add(PlayerParams.parse(line));
+				}
+			}
+			catch (IllegalArgumentException e) {
+				throw new IOException("ParameterTuner.tune() - bad checkpoint " + checkpoint, e);
+			}
+		}
+
+		for (; generation < generations; generation++) {
+			SplittableRandom rand = new SplittableRandom(masterSeed + (generation + 1) * 0x9E3779B97F4A7C15L);
+			List<Candidate> ranked = evaluate(population, Driver.gameSeeds(decksPerGeneration, rand.nextLong()));
+			Candidate leader = ranked.get(0);
+			best = leader.params;
+			if (progress != null) {
+				long rejected = ranked.stream().filter(c -> c.rejected).count();
+				progress.println("Generation " + generation + ": " + leader.result().intervalSummary() + "; "
+						+ rejected + " of " + ranked.size() + " dropped early; " + leader.params);
+			}
+			population = breed(ranked, rand);
+			if (checkpoint != null) {
+				writeCheckpoint(checkpoint, generation + 1, best, population);
+			}
+		}
+		return best;
+	}
+
+	private String header() {
+		return HEADER + " population=" + populationSize + " decks=" + decksPerGeneration + " seed=" + masterSeed;
+	}
+
+	/**
+	 * @return the defaults, and mutations of them for the rest of the population
+	 */
+	private List<PlayerParams> firstPopulation() {
+		SplittableRandom rand = new SplittableRandom(masterSeed);
+		List<PlayerParams> result = new ArrayList<>();
+		result.add(PlayerParams.DEFAULT);
+		while (result.size() < populationSize) {
+			result.add(mutate(PlayerParams.DEFAULT, rand));
+		}
+		return result;
+	}
+
+	/**
+	 * Plays population on the given decks in stages, dropping candidates that fall clearly behind.
+	 * @return the candidates, best first: those that played every deck by their average score, then those dropped,
+	 *         the later dropped first
+	 */
+	private List<Candidate> evaluate(List<PlayerParams> population, long[] seeds) {
+		List<Candidate> candidates = new ArrayList<>();
+		for (PlayerParams params : population) {
+			candidates.add(new Candidate(params, seeds.length));
+		}
+		Comparator<Candidate> byScore = Comparator.comparingInt((Candidate c) -> c.decksPlayed)
+				.thenComparingLong(c -> total(c)).reversed();
+
+		for (int played = 0; played < seeds.length; ) {
+			int from = played;
+			int to = Math.min(seeds.length, played + STAGE_DECKS);
+			int tasksPerCandidate = (to - from + TASK_GAMES - 1) / TASK_GAMES;
+			List<Candidate> alive = candidates.stream().filter(c -> !c.rejected).toList();
+			IntStream.range(0, alive.size() * tasksPerCandidate).parallel().forEach(task -> {
+				int start = from + task % tasksPerCandidate * TASK_GAMES;
+				play(alive.get(task / tasksPerCandidate), seeds, start, Math.min(to, start + TASK_GAMES));
+			});
+			for (Candidate c : alive) {
+				c.decksPlayed = to;
+			}
+			played = to;
+
+			Candidate leader = alive.stream().min(byScore).get();
+			for (Candidate c : alive) {
+				if (c != leader && played < seeds.length && compare(c, leader).zScore() < -REJECT_Z) {
+					c.rejected = true;
+				}
+			}
+		}
+		candidates.sort(byScore);
+		return candidates;
+	}
+
+	private static long total(Candidate c) {
+		long total = 0;
+		for (int i = 0; i < c.decksPlayed; i++) {
+			total += c.scores[i];
+		}
+		return total;
+	}
+
+	/**
+	 * @return a against b on the decks both have played
+	 */
+	private static ComparisonResult compare(Candidate a, Candidate b) {
+		ComparisonResult result = new ComparisonResult();
+		for (int i = 0; i < Math.min(a.decksPlayed, b.decksPlayed); i++) {
+			result.add(a.scores[i], GameError.NONE, b.scores[i], GameError.NONE);
+		}
+		return result;
+	}
+
+	/**
+	 * Plays decks from up to to with two players built from c's parameters. A game a player cut short scores 0.
+	 */
+	private static void play(Candidate c, long[] seeds, int from, int to) {
+		Hanabi game = new Hanabi(false, new Player(c.params), new Player(c.params), 0);
+		for (int i = from; i < to; i++) {
+			game.reset(seeds[i]);
+			c.scores[i] = (byte) game.playSafely();
+		}
+	}
+
+	/**
+	 * @param ranked A generation, best first
+	 * @return the next generation: the elites, then children of the better half
+	 */
+	private List<PlayerParams> breed(List<Candidate> ranked, SplittableRandom rand) {
+		List<PlayerParams> result = new ArrayList<>();
+		for (int i = 0; i < ELITES; i++) {
+			result.add(ranked.get(i).params);
+		}
+		int parents = Math.max(2, ranked.size() / 2);
+		while (result.size() < populationSize) {
+			// The better of two picks, so the best parents breed most.
+			PlayerParams a = ranked.get(Math.min(rand.nextInt(parents), rand.nextInt(parents))).params;
+			PlayerParams b = ranked.get(Math.min(rand.nextInt(parents), rand.nextInt(parents))).params;
+			result.add(mutate(crossover(a, b, rand), rand));
+		}
+		return result;
+	}
+
+	private static PlayerParams crossover(PlayerParams a, PlayerParams b, SplittableRandom rand) {
+		double gamble = a.getGambleThreshold()
+				+ rand.nextDouble() * (b.getGambleThreshold() - a.getGambleThreshold());
+		int fuses = rand.nextBoolean() ? a.getMinFusesToGamble() : b.getMinFusesToGamble();
+		int chop = rand.nextBoolean() ? a.getChopPolicy() : b.getChopPolicy();
+
+		// Order crossover: a prefix of a's order, then the remaining rules in b's order.
+		int[] orderA = a.getRuleOrder();
+		int[] orderB = b.getRuleOrder();
+		int cut = rand.nextInt(orderA.length + 1);
+		int[] order = new int[orderA.length];
+		int taken = 0;
+		for (int i = 0; i < cut; i++) {
+			order[i] = orderA[i];
+			taken |= 1 << orderA[i];
+		}
+		int next = cut;
+		for (int rule : orderB) {
+			if ((taken & (1 << rule)) == 0) {
+				order[next++] = rule;
+			}
+		}
+		return new PlayerParams(gamble, fuses, chop, order);
+	}
+
+	private static PlayerParams mutate(PlayerParams p, SplittableRandom rand) {
+		double gamble = Math.max(0, Math.min(1, p.getGambleThreshold() + GAMBLE_STEP * rand.nextGaussian()));
+		int fuses = p.getMinFusesToGamble();
+		if (rand.nextInt(5) == 0) {
+			fuses = Math.max(1, Math.min(Board.MAX_FUSES, fuses + (rand.nextBoolean() ? 1 : -1)));
+		}
+		int chop = p.getChopPolicy();
+		if (rand.nextInt(10) == 0) {
+			chop = rand.nextInt(PlayerParams.NUM_CHOP_POLICIES);
+		}
+		int[] order = p.getRuleOrder();
+		if (rand.nextInt(3) == 0) {
+			int i = rand.nextInt(order.length - 1);
+			int swap = order[i];
+			order[i] = order[i + 1];
+			order[i + 1] = swap;
+		}
+		return new PlayerParams(gamble, fuses, chop, order);
+	}
+
+	/**
+	 * Replaces checkpoint with the population to start the given generation from.
+	 */
+	private void writeCheckpoint(Path checkpoint, int generation, PlayerParams best, List<PlayerParams> population)
+			throws IOException {
+		List<String> lines = new ArrayList<>();
+		lines.add(header());
+		lines.add("generation " + generation);
+		lines.add("best " + best);
+		for (PlayerParams params : population) {
+			lines.add(params.toString());
+		}
+		Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+		Files.write(temp, lines, StandardCharsets.UTF_8);
+		Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
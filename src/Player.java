@@ -5,51 +5,131 @@ import java.util.stream.IntStream;
  * @author Evan Dreher, Caleb Frey
  *
  */
-public class Player {
+public class Player implements GameListener {
 	// what I know about my cards
     final ArrayList<CardKnowledge> knowledge;
 
     // what I know my partner knows about their cards
     final ArrayList<CardKnowledge> partnerKnowledge;
 
-    // remaining cards in the deck
-    final HashMap<Card, Integer> remaining;
+    // remaining cards in the deck, indexed by card id
+    final int[] remaining;
+
+    // bumped whenever remaining changes, so odds cached against the old counts are not reused
+    private int remainingVersion;
+
+    // bumped whenever a card is played, so odds cached against the old tableau are not reused
+    private int tableauVersion;
+
+    // play, discard and criticality odds for the options masks in knowledge
+    private final ProbabilityCache odds = new ProbabilityCache();
 
     // play the left most hinted card
-    private int nextPlay;
+    int nextPlay;
 
     // only true on the first turn
     private boolean firstRun;
 
-    // set of cards for which all copies are accounted for
-    final private Set<Card> impossibleCards;
+    // the DecisionMetrics rule behind the last action chosen, or -1 before the first
+    private int lastRule = -1;
+
+    // mask of card ids for which all copies are accounted for
+    private int impossibleCards;
+
+    // false for the copies search players simulate with, so DecisionMetrics only counts real decisions
+    boolean metered = true;
+
+    // what tryRule() returns for a rule that does not apply; never a valid action
+    private static final int NO_ACTION = -1;
+
+    // the tunable constants of the rules below, and the order to try the rules in
+    private final PlayerParams params;
+    private final int[] ruleOrder;
 
     /**
 	 * This default constructor should be the only constructor you supply.
 	 */
 	public Player() {
+        this(PlayerParams.DEFAULT);
+	}
+
+	/**
+	 * Creates a rule-based player that plays by params instead of the defaults, for ParameterTuner.
+	 */
+	public Player(PlayerParams params) {
+        this.params = params;
+        ruleOrder = params.getRuleOrder();
+        remaining = new int[Card.NUM_CARDS];
+        knowledge = new ArrayList<>();
+        partnerKnowledge = new ArrayList<>();
+        startGame();
+	}
+
+	/**
+	 * Gets this player ready for a new game, as if newly constructed, reusing its storage. Hanabi.reset() calls
+	 * it for both players. Subclasses that keep per-game state of their own should override it and call
+	 * super.reset().
+	 */
+	public void reset() {
+        startGame();
+	}
+
+	private void startGame() {
         firstRun = false;
-        remaining = new HashMap<>();
-        impossibleCards = new HashSet<>();
+        lastRule = -1;
+        impossibleCards = 0;
         for (int i = 0; i < 5; i++) {
             for (int j = 1; j < 6; j++) {
-                switch (j) {
-                    case 1 -> remaining.put(new Card(i, j), 3);
-                    case 5 -> remaining.put(new Card(i, j), 1);
-                    default -> remaining.put(new Card(i, j), 2);
-                }
+                remaining[Card.idOf(i, j)] = Card.numCopies(j);
             }
         }
+        remainingVersion++;
+        tableauVersion++;
         nextPlay = -1;
-        knowledge = new ArrayList<>();
-        partnerKnowledge = new ArrayList<>();
         // initialize all card knowledges to all options
-        for (int i = 0; i < 5; i++) {
-            knowledge.add(new CardKnowledge(getImpossibleCards()));
-            partnerKnowledge.add(new CardKnowledge());
+        resetKnowledge(knowledge);
+        resetKnowledge(partnerKnowledge);
+	}
+
+	/**
+	 * Makes list hold five CardKnowledges that know nothing, reusing the ones already in it.
+	 */
+	private static void resetKnowledge(ArrayList<CardKnowledge> list) {
+        while (list.size() > 5) {
+            list.remove(list.size() - 1);
+        }
+        for (CardKnowledge know : list) {
+            know.reset(0);
+        }
+        while (list.size() < 5) {
+            list.add(new CardKnowledge());
         }
 	}
 	
+	/**
+	 * Creates a rule-based player in the same state as other, to simulate how other would carry on.
+	 * @param other The player to copy; its knowledge is deep-copied
+	 */
+	public Player(Player other) {
+        params = other.params;
+        ruleOrder = other.ruleOrder;
+        firstRun = other.firstRun;
+        remaining = other.remaining.clone();
+        remainingVersion = other.remainingVersion;
+        tableauVersion = other.tableauVersion;
+        impossibleCards = other.impossibleCards;
+        nextPlay = other.nextPlay;
+        metered = other.metered;
+        knowledge = new ArrayList<>();
+        partnerKnowledge = new ArrayList<>();
+        for (CardKnowledge know : other.knowledge) {
+            knowledge.add(new CardKnowledge(know));
+        }
+        for (CardKnowledge know : other.partnerKnowledge) {
+            partnerKnowledge.add(new CardKnowledge(know));
+        }
+	}
+
 	/**
 	 * This method runs whenever your partner discards a card.
 	 * @param startHand The hand your partner started with before discarding.
@@ -61,16 +141,15 @@ public class Player {
 	 * @param boardState The state of the board after play.
 	 */
 	public void tellPartnerDiscard(
-            Hand startHand,
+            HandView startHand,
             Card discard,
             int disIndex,
             Card draw,
             int drawIndex,
-            Hand finalHand,
-            Board boardState) {
-        remaining.put(draw, remaining.get(draw) - 1);
-
-        if (remaining.get(draw) == 0) {
+            HandView finalHand,
+            BoardView boardState) {
+        remainingVersion++;
+        if (--remaining[draw.id()] == 0) {
             impossibleCardFound(draw);
         }
 
@@ -91,10 +170,9 @@ public class Player {
             int disIndex,
             int drawIndex,
             boolean drawSucceeded,
-            Board boardState) {
-        remaining.put(discard, remaining.get(discard) - 1);
-
-        if (remaining.get(discard) == 0) {
+            BoardView boardState) {
+        remainingVersion++;
+        if (--remaining[discard.id()] == 0) {
             impossibleCardFound(discard);
         }
 
@@ -114,18 +192,18 @@ public class Player {
 	 * @param boardState The state of the board after play.
 	 */
 	public void tellPartnerPlay(
-            Hand startHand,
+            HandView startHand,
             Card play,
             int playIndex,
             Card draw,
             int drawIndex,
-            Hand finalHand,
+            HandView finalHand,
             boolean wasLegalPlay,
-            Board boardState) {
+            BoardView boardState) {
         // TODO: update card knowledge
-        remaining.put(draw, remaining.get(draw) - 1);
-
-        if (remaining.get(draw) == 0) {
+        remainingVersion++;
+        tableauVersion++;
+        if (--remaining[draw.id()] == 0) {
             impossibleCardFound(draw);
         }
 
@@ -149,10 +227,14 @@ public class Player {
             int drawIndex,
             boolean drawSucceeded,
             boolean wasLegalPlay,
-            Board boardState) {
-        remaining.put(play, remaining.get(play) - 1);
+            BoardView boardState) {
+        if (DecisionMetrics.ENABLED && metered && !wasLegalPlay && lastRule >= 0) {
+            DecisionMetrics.recordMisplay(lastRule);
+        }
 
-        if (remaining.get(play) == 0) {
+        remainingVersion++;
+        tableauVersion++;
+        if (--remaining[play.id()] == 0) {
             impossibleCardFound(play);
         }
 
@@ -170,8 +252,8 @@ public class Player {
 	public void tellColorHint(
             int color,
             ArrayList<Integer> indices,
-            Hand partnerHand,
-            Board boardState) {
+            HandView partnerHand,
+            BoardView boardState) {
         boolean warn_hint = false;
         for (Integer i : indices) {
             if (knowledge.get(i).getKnownValue() == 1) {
@@ -194,8 +276,8 @@ public class Player {
 	public void tellNumberHint(
             int number,
             ArrayList<Integer> indices,
-            Hand partnerHand,
-            Board boardState) {
+            HandView partnerHand,
+            BoardView boardState) {
         nextPlay = indices.get(0);
         updateKnowledgeNumberHint(number, indices, boardState, knowledge);
 	}
@@ -221,57 +303,142 @@ public class Player {
 	 *     This command informs your partner which of his cards have the chosen color. An error will result if none of
 	 *     his cards have that color, or if no hints remain. This command consumes a hint.
 	 */
-	public String ask(int yourHandSize, Hand partnerHand, Board boardState) {
+	public String ask(int yourHandSize, HandView partnerHand, BoardView boardState) {
+        return Action.toString(askAction(yourHandSize, partnerHand, boardState));
+	}
+
+	/**
+	 * This method runs when the game asks you for your next move. The game calls this rather than ask(), so
+	 * players that only override ask() should override this to parse its result.
+	 * @param yourHandSize How many cards you have in hand.
+	 * @param partnerHand Your partner's current hand.
+	 * @param boardState The current state of the board.
+	 * @return Your chosen action, built with Action.play(), Action.discard(), Action.numberHint() or
+	 *  Action.colorHint(); the same rules apply as for the Strings described in ask().
+	 */
+	public int askAction(int yourHandSize, HandView partnerHand, BoardView boardState) {
+        if (!DecisionMetrics.ENABLED || !metered) {
+            return chooseAction(partnerHand, boardState);
+        }
+        long start = System.nanoTime();
+        int action = chooseAction(partnerHand, boardState);
+        DecisionMetrics.recordAskNanos(System.nanoTime() - start);
+        return action;
+	}
+
+    /**
+     * Runs the decision rules in the order params gives, then falls back on discarding the chop block; each choice
+     * is passed through decided().
+     */
+    private int chooseAction(HandView partnerHand, BoardView boardState) {
         // update remaining cards on first turn
         if (firstRun) {
             for (int i = 0; i < 5; i++) {
-                Card c = partnerHand.get(i);
-                remaining.put(c, remaining.get(c) - 1);
+                remaining[partnerHand.getId(i)]--;
             }
+            remainingVersion++;
             firstRun = false;
         }
 
-        // if partner knows they have a 1 but they don't know the color and it isn't playable, hint the color
-        for (int i = 0; i < 5; i++) {
-            CardKnowledge know = partnerKnowledge.get(i);
-            if (
-                    know.getKnownValue() == 1 && know.getKnownColor() == -1 &&
-                            !boardState.isLegalPlay(partnerHand.get(i)) &&
-                            boardState.numHints > 0
-            ) {
-                ArrayList<Integer> indices = new ArrayList<>();
-                for (int j = 0; j < 5; j++) {
-                    if (partnerHand.get(j).color == partnerHand.get(i).color) {
-                        indices.add(j);
-                    }
-                }
-                updateKnowledgeColorHint(partnerHand.get(i).color, indices, boardState, partnerKnowledge);
-                return "COLORHINT " + partnerHand.get(i).color;
+        for (int rule : ruleOrder) {
+            int action = tryRule(rule, partnerHand, boardState);
+            if (action != NO_ACTION) {
+                return decided(rule, action);
             }
         }
 
-        // play the left most card that was hinted last turn
-        if (nextPlay >= 0) {
-            int temp = nextPlay;
-            nextPlay = -1;
-            return "PLAY " + temp + " 0";
-        }
+        // discard the chopping block
+        return decided(DecisionMetrics.DISCARD_CHOP, Action.discard(chooseChopBlock(boardState), 0));
+	}
 
-        // if we know a card is playable based on remaining options, play it
-        for (int i = 0; i < 5; i++) {
-            if (knowledge.get(i).isDefinitelyPlayable(boardState)) {
-                return "PLAY " + i + " 0";
-            }
-        }
+    /**
+     * @param rule A DecisionMetrics rule other than DISCARD_CHOP
+     * @return the action rule chooses, or NO_ACTION if it does not apply
+     */
+    private int tryRule(int rule, HandView partnerHand, BoardView boardState) {
+        switch (rule) {
+            case DecisionMetrics.HINT_STRANDED_ONE:
+                // if partner knows they have a 1 but they don't know the color and it isn't playable, hint the color
+                for (int i = 0; i < 5; i++) {
+                    CardKnowledge know = partnerKnowledge.get(i);
+                    if (
+                            know.getKnownValue() == 1 && know.getKnownColor() == -1 &&
+                                    !boardState.isLegalPlay(partnerHand.get(i)) &&
+                                    boardState.getNumHints() > 0
+                    ) {
+                        ArrayList<Integer> indices = new ArrayList<>();
+                        for (int j = 0; j < 5; j++) {
+                            if (partnerHand.get(j).color == partnerHand.get(i).color) {
+                                indices.add(j);
+                            }
+                        }
+                        updateKnowledgeColorHint(partnerHand.get(i).color, indices, boardState, partnerKnowledge);
+                        return Action.colorHint(partnerHand.get(i).color);
+                    }
+                }
+                return NO_ACTION;
+
+            case DecisionMetrics.PLAY_HINTED:
+                // play the left most card that was hinted last turn
+                if (nextPlay >= 0) {
+                    int temp = nextPlay;
+                    nextPlay = -1;
+                    return Action.play(temp, 0);
+                }
+                return NO_ACTION;
 
-        // if we know a card is discardable from remaining options, discard it
-        for (int i = 0; i < 5; i++) {
-            if (knowledge.get(i).isDiscardable(boardState)) {
-                return "DISCARD " + i + " 0";
-            }
+            case DecisionMetrics.PLAY_DEFINITELY_PLAYABLE:
+                // if we know a card is playable based on remaining options, play it
+                for (int i = 0; i < 5; i++) {
+                    if (knowledge.get(i).isDefinitelyPlayable(boardState)) {
+                        return Action.play(i, 0);
+                    }
+                }
+                return NO_ACTION;
+
+            case DecisionMetrics.DISCARD_DISCARDABLE:
+                // if we know a card is discardable from remaining options, discard it
+                for (int i = 0; i < 5; i++) {
+                    if (knowledge.get(i).isDiscardable(boardState)) {
+                        return Action.discard(i, 0);
+                    }
+                }
+                return NO_ACTION;
+
+            case DecisionMetrics.HINT_PLAYABLE:
+                return hintPlayable(partnerHand, boardState);
+
+            case DecisionMetrics.KNOWN_ONE:
+                // if its a one and we don't know its color, play it
+                for (int i = 0; i < 5; i++) {
+                    CardKnowledge know = knowledge.get(i);
+                    if (know.getKnownValue() == 1 && know.getKnownColor() == -1) {
+                        return Action.play(i, 0);
+                    } else if (know.getKnownValue() == 1) {
+                        return Action.discard(i, 0);
+                    }
+                }
+                return NO_ACTION;
+
+            case DecisionMetrics.GAMBLE:
+                for (int i = 0; i < 5; i++) {
+                    if (playProbability(i, boardState) >= params.getGambleThreshold() &&
+                            boardState.getNumFuses() >= params.getMinFusesToGamble()) {
+                        return Action.play(i, 0);
+                    }
+                }
+                return NO_ACTION;
+
+            default:
+                throw new IllegalArgumentException("Player.tryRule() - bad rule " + rule);
         }
+    }
 
-        // if out partner is holding a playable card, give them a hint such that it will be played by the play left rule
+    /**
+     * If out partner is holding a playable card, give them a hint such that it will be played by the play left rule
+     * @return the hint, or NO_ACTION if there is none to give
+     */
+    private int hintPlayable(HandView partnerHand, BoardView boardState) {
         for (int i = 0; i < 5; i++) {
             Card c = partnerHand.get(i);
             boolean first_number = true;
@@ -287,7 +454,7 @@ public class Player {
             }
 
             // give number hint
-            if (boardState.isLegalPlay(c) && first_number && boardState.numHints > 0) {
+            if (boardState.isLegalPlay(c) && first_number && boardState.getNumHints() > 0) {
                 ArrayList<Integer> indices = new ArrayList<>();
                 for (int j = 0; j < 5; j++) {
                     if (partnerHand.get(j).value == c.value) {
@@ -295,11 +462,11 @@ public class Player {
                     }
                 }
                 updateKnowledgeNumberHint(c.value, indices, boardState, partnerKnowledge);
-                return "NUMBERHINT " + c.value;
+                return Action.numberHint(c.value);
             }
 
             // give color hint
-            if (boardState.isLegalPlay(c) && first_color && boardState.numHints > 0) {
+            if (boardState.isLegalPlay(c) && first_color && boardState.getNumHints() > 0) {
                 ArrayList<Integer> indices = new ArrayList<>();
                 for (int j = 0; j < 5; j++) {
                     if (partnerHand.get(j).color == c.color) {
@@ -307,31 +474,51 @@ public class Player {
                     }
                 }
                 updateKnowledgeColorHint(c.color, indices, boardState, partnerKnowledge);
-                return "COLORHINT " + c.color;
+                return Action.colorHint(c.color);
             }
         }
+        return NO_ACTION;
+    }
 
-        // if its a one and we don't know its color, play it
-        for (int i = 0; i < 5; i++) {
-            CardKnowledge know = knowledge.get(i);
-            if (know.getKnownValue() == 1 && know.getKnownColor() == -1) {
-                return "PLAY " + i + " 0";
-            } else if (know.getKnownValue() == 1) {
-                return "DISCARD " + i + " 0";
-            }
+    // EXTRA METHODS
+    /**
+     * Notes which rule chose action, for DecisionMetrics and for blaming misplays.
+     * @return action, for convenience
+     */
+    private int decided(int rule, int action) {
+        lastRule = rule;
+        if (DecisionMetrics.ENABLED && metered) {
+            DecisionMetrics.recordDecision(rule);
         }
+        return action;
+    }
 
-        for (int i = 0; i < 5; i++) {
-            if (knowledge.get(i).probablyPlayable(remaining, boardState) >= 0.5 && boardState.numFuses > 1) {
-                return "PLAY " + i + " 0";
-            }
-        }
+    /**
+     * @return the chance that the card at index in my hand is playable on boardState, weighing each possibility by
+     *  how many copies of it I have not seen; NaN if I have seen every copy of every possibility
+     */
+    public double playProbability(int index, BoardView boardState) {
+        return odds.playable(knowledge.get(index).getOptions(), remainingVersion, tableauVersion, remaining,
+                boardState);
+    }
 
-        // discard the chopping block
-        return "DISCARD " + getMyChopBlock() + " 0";
-	}
+    /**
+     * @return the chance that discarding the card at index in my hand loses nothing, because it is already on the
+     *  tableau or another copy of it is still around
+     */
+    public double discardSafety(int index, BoardView boardState) {
+        return odds.discardSafety(knowledge.get(index).getOptions(), remainingVersion, tableauVersion, remaining,
+                boardState);
+    }
+
+    /**
+     * @return the chance that the card at index in my hand is the last copy of a card still needed
+     */
+    public double criticality(int index, BoardView boardState) {
+        return odds.criticality(knowledge.get(index).getOptions(), remainingVersion, tableauVersion, remaining,
+                boardState);
+    }
 
-    // EXTRA METHODS
     public int getMyChopBlock() {
         for (int i = 4; i >= 0; i--) {
             if (!knowledge.get(i).beenHinted) { return i; }
@@ -339,7 +526,31 @@ public class Player {
         return -1;
     }
 
-    public void updateKnowledgeNumberHint(int number, ArrayList<Integer> indices, Board boardState, ArrayList<CardKnowledge> knowledge) {
+    /**
+     * @return the card to discard when no other rule applies, by params' chop policy; -1 if every card has been
+     *  hinted
+     */
+    private int chooseChopBlock(BoardView boardState) {
+        if (params.getChopPolicy() == PlayerParams.CHOP_OLDEST) {
+            return getMyChopBlock();
+        }
+        int best = -1;
+        double bestSafety = -1;
+        for (int i = 4; i >= 0; i--) {
+            double safety = discardSafety(i, boardState);
+            if (Double.isNaN(safety)) {
+                // no options left, so nothing is known about it
+                safety = 0;
+            }
+            if (!knowledge.get(i).beenHinted && (best < 0 || safety > bestSafety)) {
+                best = i;
+                bestSafety = safety;
+            }
+        }
+        return best;
+    }
+
+    public void updateKnowledgeNumberHint(int number, ArrayList<Integer> indices, BoardView boardState, ArrayList<CardKnowledge> knowledge) {
         for (int i = 0; i < 5; i++) {
             if (indices.contains(i)) {
                 knowledge.get(i).beenHinted = true;
@@ -350,7 +561,7 @@ public class Player {
         }
     }
 
-    public void updateKnowledgeColorHint(int color, ArrayList<Integer> indices, Board boardState, ArrayList<CardKnowledge> knowledge) {
+    public void updateKnowledgeColorHint(int color, ArrayList<Integer> indices, BoardView boardState, ArrayList<CardKnowledge> knowledge) {
         for (int i = 0; i < 5; i++) {
             if (indices.contains(i)) {
                 knowledge.get(i).knowColor(color);
@@ -361,13 +572,16 @@ public class Player {
     }
 
     public void impossibleCardFound(Card card) {
-        impossibleCards.add(card);
+        impossibleCards |= CardKnowledge.mask(card);
         for (int i = 0; i < 5; i++) {
             knowledge.get(i).eliminateCard(card);
         }
     }
 
-    public Set<Card> getImpossibleCards() {
-        return impossibleCards.size() > 0 ? impossibleCards : null;
+    /**
+     * @return a mask with the id bit of every card whose copies are all accounted for
+     */
+    public int getImpossibleCards() {
+        return impossibleCards;
     }
 }
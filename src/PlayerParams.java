@@ -0,0 +1,141 @@
+import java.util.Arrays;
+
+/**
+ * The tunable constants of the rule-based Player: when it gambles on a card that is only probably playable, which
+ * card it discards when no rule applies, and the order in which it tries its rules.
+ * <p>
+ * Rules are named by their DecisionMetrics constants. Every rule but DISCARD_CHOP must appear in the order
+ * exactly once; DISCARD_CHOP always comes last, since it is what Player does when no other rule applies.
+ * DEFAULT is the hand-tuned behaviour Player has always had. Instances are immutable, and toString() and parse()
+ * convert them to and from one line of text without loss.
+ */
+public final class PlayerParams {
+	// The chop block is the oldest card that has not been hinted.
+	public static final int CHOP_OLDEST = 0;
+	// The chop block is the card that has not been hinted that is most likely safe to discard, oldest first.
+	public static final int CHOP_SAFEST = 1;
+	public static final int NUM_CHOP_POLICIES = 2;
+
+	// The rules that can be reordered: all but DISCARD_CHOP.
+	public static final int NUM_ORDERED_RULES = DecisionMetrics.DISCARD_CHOP;
+
+	public static final PlayerParams DEFAULT = new PlayerParams(0.5, 2, CHOP_OLDEST, new int[] {
+			DecisionMetrics.HINT_STRANDED_ONE, DecisionMetrics.PLAY_HINTED, DecisionMetrics.PLAY_DEFINITELY_PLAYABLE,
+			DecisionMetrics.DISCARD_DISCARDABLE, DecisionMetrics.HINT_PLAYABLE, DecisionMetrics.KNOWN_ONE,
+			DecisionMetrics.GAMBLE
+	});
+
+	private static final String[] CHOP_NAMES = {"oldest", "safest"};
+
+	private final double gambleThreshold;
+	private final int minFusesToGamble;
+	private final int chopPolicy;
+	private final int[] ruleOrder;
+
+	/**
+	 * @param gambleThreshold The chance of being playable at which the GAMBLE rule plays a card, from 0 to 1
+	 * @param minFusesToGamble The fewest fuses left at which the GAMBLE rule is tried, from 1 to 3
+	 * @param chopPolicy CHOP_OLDEST or CHOP_SAFEST
+	 * @param ruleOrder Every rule but DISCARD_CHOP, in the order to try them
+	 */
+	public PlayerParams(double gambleThreshold, int minFusesToGamble, int chopPolicy, int[] ruleOrder) {
+		if (!(gambleThreshold >= 0 && gambleThreshold <= 1) || minFusesToGamble < 1
+				|| minFusesToGamble > Board.MAX_FUSES || chopPolicy < 0 || chopPolicy >= NUM_CHOP_POLICIES
+				|| !isRuleOrder(ruleOrder)) {
+			throw new IllegalArgumentException("PlayerParams() - bad parameters " + gambleThreshold + ", "
+					+ minFusesToGamble + ", " + chopPolicy + ", " + Arrays.toString(ruleOrder));
+		}
+		this.gambleThreshold = gambleThreshold;
+		this.minFusesToGamble = minFusesToGamble;
+		this.chopPolicy = chopPolicy;
+		this.ruleOrder = ruleOrder.clone();
+	}
+
+	private static boolean isRuleOrder(int[] order) {
+		if (order.length != NUM_ORDERED_RULES) {
+			return false;
+		}
+		int seen = 0;
+		for (int rule : order) {
+			if (rule < 0 || rule >= NUM_ORDERED_RULES || (seen & (1 << rule)) != 0) {
+				return false;
+			}
+			seen |= 1 << rule;
+		}
+		return true;
+	}
+
+	public double getGambleThreshold() {
+		return gambleThreshold;
+	}
+
+	public int getMinFusesToGamble() {
+		return minFusesToGamble;
+	}
+
+	public int getChopPolicy() {
+		return chopPolicy;
+	}
+
+	/**
+	 * @return a copy of the rule order
+	 */
+	public int[] getRuleOrder() {
+		return ruleOrder.clone();
+	}
+
+	/**
+	 * Reads parameters written by toString().
+	 * @throws IllegalArgumentException if text is not in that form, or the parameters are out of range
+	 */
+	public static PlayerParams parse(String text) {
+		String[] fields = text.trim().split("\\s+");
+		if (fields.length != 4 || !fields[0].startsWith("gamble=") || !fields[1].startsWith("minFuses=")
+				|| !fields[2].startsWith("chop=") || !fields[3].startsWith("order=")) {
+			throw new IllegalArgumentException("PlayerParams.parse() - bad parameters \"" + text + "\"");
+		}
+		try {
+			int chop = Arrays.asList(CHOP_NAMES).indexOf(value(fields[2]));
+			String[] rules = value(fields[3]).split(",");
+			int[] order = new int[rules.length];
+			for (int i = 0; i < rules.length; i++) {
+				order[i] = Integer.parseInt(rules[i]);
+			}
+			return new PlayerParams(Double.parseDouble(value(fields[0])), Integer.parseInt(value(fields[1])), chop,
+					order);
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("PlayerParams.parse() - bad parameters \"" + text + "\"", e);
+		}
+	}
+
+	private static String value(String field) {
+		return field.substring(field.indexOf('=') + 1);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof PlayerParams)) {
+			return false;
+		}
+		PlayerParams other = (PlayerParams) o;
+		return gambleThreshold == other.gambleThreshold && minFusesToGamble == other.minFusesToGamble
+				&& chopPolicy == other.chopPolicy && Arrays.equals(ruleOrder, other.ruleOrder);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * (31 * Double.hashCode(gambleThreshold) + minFusesToGamble) + chopPolicy)
+				+ Arrays.hashCode(ruleOrder);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder order = new StringBuilder();
+		for (int rule : ruleOrder) {
+			order.append(order.length() == 0 ? "" : ",").append(rule);
+		}
+		return "gamble=" + gambleThreshold + " minFuses=" + minFusesToGamble + " chop=" + CHOP_NAMES[chopPolicy]
+				+ " order=" + order;
+	}
+}
@@ -0,0 +1,119 @@
+import java.util.Arrays;
+
+/**
+ * Memoized odds for the cards a Player cannot see: how likely each is to be playable, to be safe to discard, and
+ * to be critical (the last copy of a card that is still needed).
+ * <p>
+ * The odds for a card depend only on its CardKnowledge options, the counts of unseen cards, and the board. Entries
+ * are keyed by the options mask and by two version numbers the Player bumps: one whenever its counts change, which
+ * covers discards, and one whenever a card is played. Between those, a turn's queries for the cards in hand cost
+ * at most one pass over each card's options, and usually none. All three odds come from the same pass, and the
+ * masks of playable, dead and critical cards it tests against are only rebuilt when a version changes.
+ */
+final class ProbabilityCache {
+	// Entries, direct-mapped by options mask; a power of two, comfortably more than a hand's worth.
+	private static final int SIZE = 16;
+
+	private final int[] masks = new int[SIZE];
+	private final int[] versions = new int[SIZE];
+	private final int[] tableauVersions = new int[SIZE];
+	private final double[] playable = new double[SIZE];
+	private final double[] safe = new double[SIZE];
+	private final double[] critical = new double[SIZE];
+
+	// The versions the board masks were built for, and the masks themselves.
+	private int boardVersion;
+	private int boardTableauVersion;
+	private int playableIds;
+	private int criticalIds;
+
+	ProbabilityCache() {
+		// Player's versions are never negative, so nothing matches until filled in.
+		Arrays.fill(tableauVersions, -1);
+		boardTableauVersion = -1;
+	}
+
+	/**
+	 * @param options The CardKnowledge options mask of the card
+	 * @param version Changes whenever remaining does
+	 * @param tableauVersion Changes whenever the tableau of b does
+	 * @param remaining Unseen copies of each card, indexed by card id
+	 * @return the chance the card is playable on b; NaN if no options have copies left
+	 */
+	double playable(int options, int version, int tableauVersion, int[] remaining, BoardView b) {
+		return playable[lookup(options, version, tableauVersion, remaining, b)];
+	}
+
+	/**
+	 * @return the chance that discarding the card loses nothing: it is already on the tableau, or another copy of
+	 *         it is still around; NaN if no options have copies left
+	 */
+	double discardSafety(int options, int version, int tableauVersion, int[] remaining, BoardView b) {
+		return safe[lookup(options, version, tableauVersion, remaining, b)];
+	}
+
+	/**
+	 * @return the chance the card is the last copy of one still needed on the tableau; NaN if no options have
+	 *         copies left
+	 */
+	double criticality(int options, int version, int tableauVersion, int[] remaining, BoardView b) {
+		return critical[lookup(options, version, tableauVersion, remaining, b)];
+	}
+
+	/**
+	 * @return the slot holding the odds for options, filled in if they were not already there
+	 */
+	private int lookup(int options, int version, int tableauVersion, int[] remaining, BoardView b) {
+		int slot = (options * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(SIZE));
+		if (masks[slot] == options && versions[slot] == version && tableauVersions[slot] == tableauVersion) {
+			return slot;
+		}
+
+		if (boardVersion != version || boardTableauVersion != tableauVersion) {
+			buildBoardMasks(b);
+			boardVersion = version;
+			boardTableauVersion = tableauVersion;
+		}
+		int total = 0;
+		int playableCount = 0;
+		int safeCount = 0;
+		int criticalCount = 0;
+		for (int opts = options; opts != 0; opts &= opts - 1) {
+			int id = Integer.numberOfTrailingZeros(opts);
+			int count = remaining[id];
+			total += count;
+			if ((playableIds & (1 << id)) != 0) {
+				playableCount += count;
+			}
+			if ((criticalIds & (1 << id)) != 0) {
+				criticalCount += count;
+			}
+			else {
+				safeCount += count;
+			}
+		}
+		masks[slot] = options;
+		versions[slot] = version;
+		tableauVersions[slot] = tableauVersion;
+		playable[slot] = 1.0 * playableCount / total;
+		safe[slot] = 1.0 * safeCount / total;
+		critical[slot] = 1.0 * criticalCount / total;
+		return slot;
+	}
+
+	/**
+	 * Works out which cards are playable on b, and which are critical: still needed, with every other copy
+	 * discarded. A card is not needed if it is on the tableau, or can never get there because every copy of a
+	 * lower card of its color is gone.
+	 */
+	private void buildBoardMasks(BoardView b) {
+		playableIds = CardKnowledge.playableMask(b);
+		int deadIds = CardKnowledge.deadMask(b) | CardKnowledge.unreachableMask(b);
+		criticalIds = 0;
+		for (int id = 0; id < Card.NUM_CARDS; id++) {
+			if ((deadIds & (1 << id)) == 0 && Card.numCopies(Card.valueOf(id)) - b.getDiscardCount(id) <= 1) {
+				criticalIds |= 1 << id;
+			}
+		}
+	}
+}
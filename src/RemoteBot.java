@@ -0,0 +1,197 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A bot process for BotServer: connects to it and plays every seat of every game it is sent with a Player of its
+ * own, until the server hangs up. Meant as a stub for testing the server, and as a template for bots written in
+ * other languages, since it shows the whole of BotProtocol.
+ * <p>
+ * Usage: RemoteBot port [host]
+ */
+public class RemoteBot implements Closeable {
+	private static final int BUFFER_BYTES = 1 << 16;
+	// Stands in for a player that threw from a tell...() callback; it answers its next ASK with ERROR.
+	private static final Player BROKEN = new Player();
+
+	private final SocketChannel channel;
+	private final Supplier<? extends Player> players;
+	// The player in each seat of each game in flight, keyed by gameId << 1 | seat.
+	private final Map<Long, Player> seats = new HashMap<>();
+
+	private final ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+	private ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+
+	// Scratch state the frames are decoded into; Players are handed views of it.
+	private final Board board = new Board();
+	private final Hand startHand = new Hand();
+	private final Hand finalHand = new Hand();
+	private final int[] boardInts = new int[Board.SAVED_INTS];
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: RemoteBot port [host]");
+			return;
+		}
+		String host = args.length > 1 ? args[1] : InetAddress.getLoopbackAddress().getHostAddress();
+		try (RemoteBot bot = new RemoteBot(host, Integer.parseInt(args[0]), Player::new)) {
+			bot.serve();
+		}
+	}
+
+	/**
+	 * @param players Creates the player for each seat of each game
+	 */
+	public RemoteBot(String host, int port, Supplier<? extends Player> players) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(host, port));
+		this.players = players;
+	}
+
+	/**
+	 * Plays whatever the server sends until it disconnects.
+	 * @throws IOException if the connection fails or the server breaks the protocol
+	 */
+	public void serve() throws IOException {
+		while (channel.read(in) >= 0) {
+			in.flip();
+			while (in.remaining() >= Integer.BYTES && in.remaining() >= Integer.BYTES + in.getInt(in.position())) {
+				int end = in.position() + Integer.BYTES + in.getInt();
+				handle(in.get(), in.getInt(), in.get());
+				in.position(end);
+			}
+			if (in.remaining() >= Integer.BYTES && (in.getInt(in.position()) < BotProtocol.HEADER_BYTES
+					|| in.getInt(in.position()) > BotProtocol.MAX_FRAME - Integer.BYTES)) {
+				throw new IOException("RemoteBot.serve() - bad frame length");
+			}
+			in.compact();
+			// Answer everything read so far before waiting for more.
+			out.flip();
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+			out.clear();
+		}
+	}
+
+	private void handle(byte type, int gameId, int seat) throws IOException {
+		long key = (long) gameId << 1 | seat;
+		if (type == BotProtocol.START) {
+			seats.put(key, players.get());
+			return;
+		}
+		Player player = seats.get(key);
+		if (player == null) {
+			throw new IOException("RemoteBot.handle() - no game " + gameId + " seat " + seat);
+		}
+		if (type == BotProtocol.END) {
+			seats.remove(key);
+			return;
+		}
+		try {
+			dispatch(type, player, gameId, seat);
+		}
+		catch (RuntimeException e) {
+			if (type == BotProtocol.ASK) {
+				throw e;
+			}
+			seats.put(key, BROKEN);
+		}
+	}
+
+	/**
+	 * Decodes the payload of a frame for player and passes it on.
+	 */
+	private void dispatch(byte type, Player player, int gameId, int seat) throws IOException {
+		switch (type) {
+			case BotProtocol.ASK -> {
+				int handSize = in.get();
+				BotProtocol.getHand(in, finalHand);
+				BotProtocol.getBoard(in, board, boardInts);
+				String command = BotServer.ERROR_COMMAND;
+				if (player != BROKEN) {
+					try {
+						command = Action.toString(player.askAction(handSize, finalHand.view(), board.view()));
+					}
+					catch (RuntimeException e) {
+						// Sent as ERROR.
+					}
+				}
+				if (out.remaining() < BotProtocol.MAX_FRAME) {
+					out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+				}
+				int start = BotProtocol.beginFrame(out, BotProtocol.ACTION, gameId, seat);
+				BotProtocol.putText(out, command);
+				BotProtocol.endFrame(out, start);
+			}
+			case BotProtocol.TELL_PARTNER_PLAY, BotProtocol.TELL_PARTNER_DISCARD -> {
+				int index = in.get();
+				Card card = card(in.get());
+				Card draw = card(in.get());
+				int drawIndex = in.get();
+				boolean legal = type == BotProtocol.TELL_PARTNER_PLAY && in.get() != 0;
+				BotProtocol.getHand(in, startHand);
+				BotProtocol.getHand(in, finalHand);
+				BotProtocol.getBoard(in, board, boardInts);
+				if (player == BROKEN) {
+					return;
+				}
+				if (type == BotProtocol.TELL_PARTNER_PLAY) {
+					player.tellPartnerPlay(startHand.view(), card, index, draw, drawIndex, finalHand.view(), legal,
+							board.view());
+				}
+				else {
+					player.tellPartnerDiscard(startHand.view(), card, index, draw, drawIndex, finalHand.view(),
+							board.view());
+				}
+			}
+			case BotProtocol.TELL_YOUR_PLAY, BotProtocol.TELL_YOUR_DISCARD -> {
+				int index = in.get();
+				Card card = card(in.get());
+				int drawIndex = in.get();
+				boolean drawSucceeded = in.get() != 0;
+				boolean legal = type == BotProtocol.TELL_YOUR_PLAY && in.get() != 0;
+				BotProtocol.getBoard(in, board, boardInts);
+				if (player == BROKEN) {
+					return;
+				}
+				if (type == BotProtocol.TELL_YOUR_PLAY) {
+					player.tellYourPlay(card, index, drawIndex, drawSucceeded, legal, board.view());
+				}
+				else {
+					player.tellYourDiscard(card, index, drawIndex, drawSucceeded, board.view());
+				}
+			}
+			case BotProtocol.TELL_COLOR_HINT, BotProtocol.TELL_NUMBER_HINT -> {
+				int hint = in.get();
+				int mask = in.get();
+				BotProtocol.getHand(in, finalHand);
+				BotProtocol.getBoard(in, board, boardInts);
+				if (player == BROKEN) {
+					return;
+				}
+				if (type == BotProtocol.TELL_COLOR_HINT) {
+					player.tellColorHint(hint, Hanabi.hintIndices(mask), finalHand.view(), board.view());
+				}
+				else {
+					player.tellNumberHint(hint, Hanabi.hintIndices(mask), finalHand.view(), board.view());
+				}
+			}
+			default -> throw new IOException("RemoteBot.handle() - unknown frame type " + type);
+		}
+	}
+
+	private static Card card(int id) {
+		return id < 0 ? null : Card.ofId(id);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
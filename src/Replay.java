@@ -0,0 +1,207 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Streams through a log written by GameLogWriter, re-executing every game on a GameState so callers can fold
+ * statistics over the turns.
+ * <p>
+ * The log is read in chunks of GAMES_PER_CHUNK games, each memory-mapped on its own, so only the chunks being
+ * worked on are ever resident. Every chunk folds into its own accumulator, and the accumulators are combined
+ * at the end; in parallel mode the chunks are spread across the common fork-join pool.
+ */
+public class Replay implements Closeable {
+	public static final int GAMES_PER_CHUNK = 1 << 16;
+
+	/**
+	 * Receives the games of a replay, one turn at a time.
+	 * @param <A> The accumulator type; each chunk of the log gets its own
+	 */
+	public interface Visitor<A> {
+		/**
+		 * Called once the game's starting hands are dealt, before its first turn.
+		 */
+		default void startGame(A acc, Game game) {
+		}
+
+		/**
+		 * Called after each turn has been applied to game.getState(). The turn has not passed yet, so the state's
+		 * current player is the one who took the action, and its getLast...() accessors describe what happened.
+		 * @param action The packed action taken, as built by the Action factory methods
+		 */
+		void turn(A acc, Game game, int action);
+
+		/**
+		 * Called after the game's last turn.
+		 */
+		default void endGame(A acc, Game game) {
+		}
+	}
+
+	/**
+	 * The game being replayed. Each chunk reuses one of these for all its games, so visitors must not keep it.
+	 */
+	public static final class Game {
+		private final int[] deck = new int[GameLog.DECK_SIZE];
+		private final byte[] record = new byte[GameLog.RECORD_BYTES];
+		private final GameState state = new GameState();
+		private long number;
+		private long seed;
+		private int recordedScore;
+		private int numActions;
+		private int turn;
+
+		/**
+		 * @return the position of this game in the log, from 0
+		 */
+		public long getNumber() {
+			return number;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		/**
+		 * @return the score recorded for this game; the replay checks that it matches
+		 */
+		public int getRecordedScore() {
+			return recordedScore;
+		}
+
+		/**
+		 * @return the card id at position i of the shuffled deck; cards are dealt from position 49 back
+		 */
+		public int getDeckCard(int i) {
+			return deck[i];
+		}
+
+		public int getNumActions() {
+			return numActions;
+		}
+
+		/**
+		 * @return how many turns have been applied so far
+		 */
+		public int getTurn() {
+			return turn;
+		}
+
+		public GameState getState() {
+			return state;
+		}
+	}
+
+	private final String dataPath;
+	private final FileChannel data;
+	private final long numGames;
+
+	/**
+	 * Opens the log at dataPath for reading.
+	 * @throws IOException if the file cannot be opened, or dataPath is not a game log
+	 */
+	public Replay(String dataPath) throws IOException {
+		this.dataPath = dataPath;
+		data = FileChannel.open(Path.of(dataPath), StandardOpenOption.READ);
+		ByteBuffer header = ByteBuffer.allocate(GameLog.FILE_HEADER_BYTES);
+		data.read(header, 0);
+		header.flip();
+		if (header.remaining() < GameLog.FILE_HEADER_BYTES || header.getInt() != GameLog.MAGIC
+				|| header.getInt() != GameLog.VERSION) {
+			close();
+			throw new IOException("Replay() - " + dataPath + " is not a version " + GameLog.VERSION + " game log");
+		}
+		numGames = GameLog.numGames(data.size());
+	}
+
+	public long numGames() {
+		return numGames;
+	}
+
+	/**
+	 * Replays every game in the log.
+	 * @param newAccumulator Creates an empty accumulator for each chunk
+	 * @param visitor Folds each game's turns into its chunk's accumulator
+	 * @param combiner Merges two accumulators; the result may be either argument
+	 * @param parallel If true, splits the log across all cores
+	 * @return the combined accumulator
+	 * @throws UncheckedIOException if the log cannot be read
+	 * @throws IllegalStateException if a game does not replay to its recorded score
+	 */
+	public <A> A fold(Supplier<A> newAccumulator, Visitor<A> visitor, BinaryOperator<A> combiner, boolean parallel) {
+		int numChunks = (int) ((numGames + GAMES_PER_CHUNK - 1) / GAMES_PER_CHUNK);
+		IntStream chunks = IntStream.range(0, numChunks);
+		if (parallel) {
+			chunks = chunks.parallel();
+		}
+		return chunks.mapToObj(chunk -> {
+					A acc = newAccumulator.get();
+					replayChunk(chunk, acc, visitor);
+					return acc;
+				})
+				.reduce(combiner)
+				.orElseGet(newAccumulator);
+	}
+
+	private <A> void replayChunk(int chunk, A acc, Visitor<A> visitor) {
+		long first = (long) chunk * GAMES_PER_CHUNK;
+		long last = Math.min(numGames, first + GAMES_PER_CHUNK);
+		try {
+			MappedByteBuffer records = data.map(FileChannel.MapMode.READ_ONLY, GameLog.offset(first),
+					(last - first) * GameLog.RECORD_BYTES);
+
+			Game game = new Game();
+			for (long n = first; n < last; n++) {
+				records.position((int) (n - first) * GameLog.RECORD_BYTES);
+				game.number = n;
+				replayGame(records, game, visitor, acc);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static <A> void replayGame(ByteBuffer records, Game game, Visitor<A> visitor, A acc) {
+		game.seed = records.getLong(records.position());
+		records.get(game.record, 0, GameLog.RECORD_HEADER_BYTES);
+		game.recordedScore = game.record[8];
+		game.numActions = game.record[9] & 0xFF;
+		records.get(game.record, GameLog.RECORD_HEADER_BYTES, game.numActions);
+		GameLog.unpackDeck(game.record, 10, game.deck);
+
+		game.state.reset(game.deck);
+		game.turn = 0;
+		visitor.startGame(acc, game);
+		for (int i = 0; i < game.numActions; i++) {
+			int action = GameLog.decodeAction(game.record[GameLog.RECORD_HEADER_BYTES + i]);
+			game.state.perform(action);
+			game.turn++;
+			visitor.turn(acc, game, action);
+			game.state.switchPlayers();
+		}
+		if (game.state.score() != game.recordedScore) {
+			throw new IllegalStateException("Replay - game " + game.number + " replayed to a score of " +
+					game.state.score() + " but was recorded as " + game.recordedScore);
+		}
+		visitor.endGame(acc, game);
+	}
+
+	@Override
+	public void close() throws IOException {
+		data.close();
+	}
+
+	@Override
+	public String toString() {
+		return "Replay of " + numGames + " games from " + dataPath;
+	}
+}
@@ -0,0 +1,367 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Reads a store of game outcomes written by ResultStoreWriter, and answers summary and group-by queries over it.
+ * <p>
+ * A store is a directory with one file per column, each a MAGIC and VERSION header followed by one fixed-width
+ * big-endian value per game, in the order the games were appended: row i of the store is the i-th value of every
+ * column. Columns are SEED (8 bytes), SCORE, FUSES, MISPLAYS and ERROR (1 byte each), TURNS and HINTS (2 bytes
+ * each), and STRATEGY (4 bytes), an id given meaning by the strategies file, one "id name" line per strategy.
+ * <p>
+ * The column files are memory-mapped in segments of SEGMENT_ROWS rows, so a store of any size can be read without
+ * copying it onto the heap, and queries scan it in parallel on the common fork-join pool, each task on its own
+ * range of rows. Every non-seed column holds small non-negative values, so summaries are exact histograms, and
+ * percentiles cost nothing extra. A store is read as it was when opened; rows appended after that are not seen.
+ * <p>
+ * Usage: ResultStore directory [column [groupColumn]]
+ */
+public class ResultStore implements Closeable {
+	public static final int MAGIC = 0x48524553; // "HRES"
+	public static final int VERSION = 1;
+	public static final int FILE_HEADER_BYTES = 8;
+
+	public static final int SEED = 0;
+	public static final int SCORE = 1;
+	public static final int TURNS = 2;
+	public static final int FUSES = 3;
+	public static final int HINTS = 4;
+	public static final int MISPLAYS = 5;
+	public static final int ERROR = 6;
+	public static final int STRATEGY = 7;
+	public static final int NUM_COLUMNS = 8;
+
+	static final String STRATEGIES_FILE = "strategies.txt";
+
+	private static final String[] COLUMN_NAMES = {
+			"seed", "score", "turns", "fuses", "hints", "misplays", "error", "strategy"
+	};
+	private static final int[] COLUMN_BYTES = {8, 1, 2, 1, 2, 1, 1, 4};
+
+	// Rows per mapped segment; a power of two small enough that a segment of seeds stays under 2GB.
+	static final int SEGMENT_ROWS = 1 << 27;
+	// Rows scanned by one task of a query; divides SEGMENT_ROWS.
+	private static final int TASK_ROWS = 1 << 20;
+
+	private final long numRows;
+	// segments[column][s] maps rows s * SEGMENT_ROWS onwards of that column.
+	private final ByteBuffer[][] segments = new ByteBuffer[NUM_COLUMNS][];
+	private final Map<Integer, String> strategies = new HashMap<>();
+
+	/**
+	 * The distribution of one column's values over a set of rows: an exact histogram of them.
+	 */
+	public static final class Summary {
+		private long[] counts = new long[0];
+		private long count;
+		private long total;
+
+		void add(int value) {
+			if (value >= counts.length) {
+				counts = Arrays.copyOf(counts, Math.max(value + 1, counts.length * 2));
+			}
+			counts[value]++;
+			count++;
+			total += value;
+		}
+
+		/**
+		 * Folds other into this summary.
+		 * @return this summary, for use as a combiner
+		 */
+		Summary merge(Summary other) {
+			if (other.counts.length > counts.length) {
+				counts = Arrays.copyOf(counts, other.counts.length);
+			}
+			for (int i = 0; i < other.counts.length; i++) {
+				counts[i] += other.counts[i];
+			}
+			count += other.count;
+			total += other.total;
+			return this;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return how many rows had the given value
+		 */
+		public long count(int value) {
+			return value >= 0 && value < counts.length ? counts[value] : 0;
+		}
+
+		public double mean() {
+			return count == 0 ? Double.NaN : (double) total / count;
+		}
+
+		/**
+		 * @param p A percentile from 0 to 100
+		 * @return the smallest value at least p% of the rows are at or below; -1 if there are no rows
+		 */
+		public int percentile(double p) {
+			if (!(p >= 0 && p <= 100)) {
+				throw new IllegalArgumentException("ResultStore.Summary.percentile() - bad percentile " + p);
+			}
+			long rank = Math.max(1, (long) Math.ceil(p / 100 * count));
+			long seen = 0;
+			for (int value = 0; value < counts.length; value++) {
+				seen += counts[value];
+				if (seen >= rank) {
+					return value;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @return e.g. "n=10000 mean=18.861 min=0 p10=16 p50=19 p90=22 max=25"
+		 */
+		@Override
+		public String toString() {
+			return String.format("n=%d mean=%.3f min=%d p10=%d p50=%d p90=%d max=%d", count, mean(), percentile(0),
+					percentile(10), percentile(50), percentile(90), percentile(100));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: ResultStore directory [column [groupColumn]]");
+			return;
+		}
+		try (ResultStore store = new ResultStore(args[0])) {
+			int column = args.length > 1 ? column(args[1]) : SCORE;
+			System.out.println(store.size() + " games");
+			if (args.length < 3) {
+				System.out.println(COLUMN_NAMES[column] + ": " + store.summarize(column, null));
+				return;
+			}
+			int key = column(args[2]);
+			Map<Integer, Summary> groups = store.groupBy(key, column, null);
+			for (Map.Entry<Integer, Summary> group : groups.entrySet()) {
+				String name = key == STRATEGY ? store.strategyName(group.getKey()) : null;
+				System.out.println(COLUMN_NAMES[key] + " " + group.getKey() + (name == null ? "" : " (" + name + ")")
+						+ ": " + group.getValue());
+			}
+		}
+	}
+
+	/**
+	 * @return the column with the given name, e.g. "score"
+	 * @throws IllegalArgumentException if there is none
+	 */
+	public static int column(String name) {
+		int column = Arrays.asList(COLUMN_NAMES).indexOf(name);
+		if (column < 0) {
+			throw new IllegalArgumentException("ResultStore.column() - no column \"" + name + "\"");
+		}
+		return column;
+	}
+
+	static String fileName(int column) {
+		return COLUMN_NAMES[column] + ".col";
+	}
+
+	static int columnBytes(int column) {
+		return COLUMN_BYTES[column];
+	}
+
+	/**
+	 * Maps every row that is complete in every column of the store at directory.
+	 * @throws IOException if a column cannot be read, or is not a result column
+	 */
+	public ResultStore(String directory) throws IOException {
+		Path dir = Path.of(directory);
+		FileChannel[] channels = new FileChannel[NUM_COLUMNS];
+		try {
+			long rows = Long.MAX_VALUE;
+			for (int c = 0; c < NUM_COLUMNS; c++) {
+				channels[c] = FileChannel.open(dir.resolve(fileName(c)), StandardOpenOption.READ);
+				checkHeader(channels[c], dir.resolve(fileName(c)));
+				rows = Math.min(rows, (channels[c].size() - FILE_HEADER_BYTES) / COLUMN_BYTES[c]);
+			}
+			numRows = rows;
+			int numSegments = (int) ((numRows + SEGMENT_ROWS - 1) / SEGMENT_ROWS);
+			for (int c = 0; c < NUM_COLUMNS; c++) {
+				segments[c] = new ByteBuffer[numSegments];
+				for (int s = 0; s < numSegments; s++) {
+					long first = (long) s * SEGMENT_ROWS;
+					long rowsInSegment = Math.min(SEGMENT_ROWS, numRows - first);
+					segments[c][s] = channels[c].map(FileChannel.MapMode.READ_ONLY,
+							FILE_HEADER_BYTES + first * COLUMN_BYTES[c], rowsInSegment * COLUMN_BYTES[c]);
+				}
+			}
+		}
+		finally {
+			// Mappings stay valid after their channel is closed.
+			for (FileChannel channel : channels) {
+				if (channel != null) {
+					channel.close();
+				}
+			}
+		}
+		readStrategies(dir, strategies);
+	}
+
+	/**
+	 * @throws IOException if channel does not start with a result column header
+	 */
+	static void checkHeader(FileChannel channel, Path path) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+		channel.read(header, 0);
+		header.flip();
+		if (header.remaining() < FILE_HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+			throw new IOException("ResultStore - " + path + " is not a version " + VERSION + " result column");
+		}
+	}
+
+	/**
+	 * Reads the strategies file of the store at directory, if there is one, into names.
+	 */
+	static void readStrategies(Path directory, Map<Integer, String> names) throws IOException {
+		Path path = directory.resolve(STRATEGIES_FILE);
+		if (!Files.exists(path)) {
+			return;
+		}
+		List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		for (String line : lines) {
+			int space = line.indexOf(' ');
+			if (space > 0) {
+				names.put(Integer.parseInt(line.substring(0, space)), line.substring(space + 1));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public long size() {
+		return numRows;
+	}
+
+	/**
+	 * @return the name the strategy id was registered under, or null
+	 */
+	public String strategyName(int id) {
+		return strategies.get(id);
+	}
+
+	/**
+	 * @return the value of column in row
+	 */
+	public long get(int column, long row) {
+		if (row < 0 || row >= numRows) {
+			throw new IndexOutOfBoundsException("ResultStore.get() - no row " + row);
+		}
+		return value(segments[column][(int) (row / SEGMENT_ROWS)], COLUMN_BYTES[column],
+				(int) (row % SEGMENT_ROWS));
+	}
+
+	private static long value(ByteBuffer segment, int bytes, int index) {
+		switch (bytes) {
+			case 1:
+				return segment.get(index);
+			case 2:
+				return segment.getShort(index * 2);
+			case 4:
+				return segment.getInt(index * 4);
+			default:
+				return segment.getLong(index * 8);
+		}
+	}
+
+	/**
+	 * Summarizes column over the rows that filter accepts.
+	 * @param column Any column but SEED
+	 * @param filter Takes a row number, which it may get() any column of; null for every row
+	 */
+	public Summary summarize(int column, LongPredicate filter) {
+		if (column <= SEED || column >= NUM_COLUMNS) {
+			throw new IllegalArgumentException("ResultStore.summarize() - can't summarize column " + column);
+		}
+		Summary result = query(-1, column, filter).get(0);
+		return result == null ? new Summary() : result;
+	}
+
+	/**
+	 * Summarizes column over the rows that filter accepts, separately for each value of keyColumn.
+	 * @param keyColumn Any column but SEED, e.g. STRATEGY
+	 * @param column Any column but SEED
+	 * @param filter Takes a row number, which it may get() any column of; null for every row
+	 * @return the summary for each value of keyColumn that any accepted row has, in increasing order of key
+	 */
+	public Map<Integer, Summary> groupBy(int keyColumn, int column, LongPredicate filter) {
+		if (keyColumn <= SEED || keyColumn >= NUM_COLUMNS || column <= SEED || column >= NUM_COLUMNS) {
+			throw new IllegalArgumentException("ResultStore.groupBy() - can't group column " + column + " by "
+					+ keyColumn);
+		}
+		return query(keyColumn, column, filter);
+	}
+
+	/**
+	 * Scans the store in parallel, one task per TASK_ROWS rows, and merges the tasks' groups; a keyColumn of -1
+	 * puts every row in group 0.
+	 */
+	private Map<Integer, Summary> query(int keyColumn, int column, LongPredicate filter) {
+		int numTasks = (int) ((numRows + TASK_ROWS - 1) / TASK_ROWS);
+		return IntStream.range(0, numTasks).parallel()
+				.mapToObj(task -> scan(task, keyColumn, column, filter))
+				.reduce((a, b) -> {
+					b.forEach((key, summary) -> a.merge(key, summary, Summary::merge));
+					return a;
+				})
+				.orElseGet(TreeMap::new);
+	}
+
+	/**
+	 * Runs a query over one task's rows.
+	 */
+	private TreeMap<Integer, Summary> scan(int task, int keyColumn, int column, LongPredicate filter) {
+		TreeMap<Integer, Summary> result = new TreeMap<>();
+		long first = (long) task * TASK_ROWS;
+		int rows = (int) Math.min(TASK_ROWS, numRows - first);
+		int segment = (int) (first / SEGMENT_ROWS);
+		int offset = (int) (first % SEGMENT_ROWS);
+		ByteBuffer values = segments[column][segment];
+		ByteBuffer keys = keyColumn < 0 ? null : segments[keyColumn][segment];
+		int valueBytes = COLUMN_BYTES[column];
+		int keyBytes = keyColumn < 0 ? 0 : COLUMN_BYTES[keyColumn];
+
+		// Rows mostly come in long runs of one key, so the last group found is tried first.
+		int lastKey = 0;
+		Summary last = null;
+		for (int i = offset; i < offset + rows; i++) {
+			if (filter != null && !filter.test((long) segment * SEGMENT_ROWS + i)) {
+				continue;
+			}
+			int key = keys == null ? 0 : (int) value(keys, keyBytes, i);
+			if (last == null || key != lastKey) {
+				last = result.computeIfAbsent(key, k -> new Summary());
+				lastKey = key;
+			}
+			last.add((int) value(values, valueBytes, i));
+		}
+		return result;
+	}
+
+	/**
+	 * Nothing to release: the column files were closed once mapped, and the mappings go when this is collected.
+	 */
+	@Override
+	public void close() {
+	}
+}
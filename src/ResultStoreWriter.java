@@ -0,0 +1,144 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends game outcomes to a store in the ResultStore format.
+ * <p>
+ * Each column is gathered in its own direct buffer and written to its file through a FileChannel in large blocks.
+ * Opening an existing store appends to it; if a crash left some columns with more rows than others, the extra
+ * rows are cut off first, so the columns always line up. One writer can be shared by games running on several
+ * threads; append() is synchronized.
+ */
+public class ResultStoreWriter implements Closeable {
+	private static final int BUFFER_ROWS = 1 << 13;
+
+	private final Path directory;
+	private final FileChannel[] columns = new FileChannel[ResultStore.NUM_COLUMNS];
+	private final ByteBuffer[] buffers = new ByteBuffer[ResultStore.NUM_COLUMNS];
+	private final Map<String, Integer> strategyIds = new HashMap<>();
+
+	/**
+	 * Opens the store in directory, creating it if it does not exist.
+	 * @throws IOException if the files cannot be opened, or are not result columns
+	 */
+	public ResultStoreWriter(String directory) throws IOException {
+		this.directory = Path.of(directory);
+		Files.createDirectories(this.directory);
+		long rows = Long.MAX_VALUE;
+		for (int c = 0; c < ResultStore.NUM_COLUMNS; c++) {
+			Path path = this.directory.resolve(ResultStore.fileName(c));
+			columns[c] = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			buffers[c] = ByteBuffer.allocateDirect(BUFFER_ROWS * ResultStore.columnBytes(c));
+			if (columns[c].size() == 0) {
+				ByteBuffer header = ByteBuffer.allocate(ResultStore.FILE_HEADER_BYTES);
+				header.putInt(ResultStore.MAGIC).putInt(ResultStore.VERSION).flip();
+				columns[c].write(header, 0);
+			}
+			else {
+				try {
+					ResultStore.checkHeader(columns[c], path);
+				}
+				catch (IOException e) {
+					close();
+					throw e;
+				}
+			}
+			rows = Math.min(rows, (columns[c].size() - ResultStore.FILE_HEADER_BYTES)
+					/ ResultStore.columnBytes(c));
+		}
+		for (int c = 0; c < ResultStore.NUM_COLUMNS; c++) {
+			long end = ResultStore.FILE_HEADER_BYTES + rows * ResultStore.columnBytes(c);
+			columns[c].truncate(end);
+			columns[c].position(end);
+		}
+
+		Map<Integer, String> names = new HashMap<>();
+		ResultStore.readStrategies(this.directory, names);
+		names.forEach((id, name) -> strategyIds.put(name, id));
+	}
+
+	/**
+	 * @return the id games of the named strategy are stored under, registering it if it is new
+	 * @throws IOException if a new strategy cannot be added to the strategies file
+	 */
+	public synchronized int strategyId(String name) throws IOException {
+		if (name.isEmpty() || name.contains("\n")) {
+			throw new IllegalArgumentException("ResultStoreWriter.strategyId() - bad name \"" + name + "\"");
+		}
+		Integer id = strategyIds.get(name);
+		if (id == null) {
+			id = strategyIds.size();
+			Files.writeString(directory.resolve(ResultStore.STRATEGIES_FILE), id + " " + name + "\n",
+					StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			strategyIds.put(name, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Appends one game's outcome; see Hanabi.setResultStore().
+	 * @param seed The seed the game was created with
+	 * @param error The GameError code the game ended with
+	 * @param strategyId From strategyId()
+	 * @throws UncheckedIOException if the store cannot be written
+	 */
+	public synchronized void append(long seed, int score, int turns, int fusesLeft, int hintsUsed, int misplays,
+			int error, int strategyId) {
+		if (!buffers[ResultStore.SEED].hasRemaining()) {
+			try {
+				flush();
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		buffers[ResultStore.SEED].putLong(seed);
+		buffers[ResultStore.SCORE].put((byte) score);
+		buffers[ResultStore.TURNS].putShort((short) turns);
+		buffers[ResultStore.FUSES].put((byte) fusesLeft);
+		buffers[ResultStore.HINTS].putShort((short) hintsUsed);
+		buffers[ResultStore.MISPLAYS].put((byte) misplays);
+		buffers[ResultStore.ERROR].put((byte) error);
+		buffers[ResultStore.STRATEGY].putInt(strategyId);
+	}
+
+	/**
+	 * Writes out every buffered row, so that a ResultStore opened afterwards sees them.
+	 */
+	public synchronized void flush() throws IOException {
+		for (int c = 0; c < ResultStore.NUM_COLUMNS; c++) {
+			ByteBuffer buffer = buffers[c];
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				columns[c].write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if (buffers[ResultStore.NUM_COLUMNS - 1] != null) {
+				flush();
+			}
+		}
+		finally {
+			for (FileChannel column : columns) {
+				if (column != null) {
+					column.close();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,167 @@
+import java.util.Arrays;
+
+/**
+ * Score totals and distribution for a batch of simulated games.
+ * <p>
+ * Each worker thread fills in its own instance, and the partial results are merged at the end.
+ * Everything is kept as integer counts, so merging in any order gives exactly the same result.
+ * <p>
+ * The mean and variance of the scores are also kept as a running (Welford) estimate, which is what
+ * confidenceHalfWidth() works from. Unlike the counts, it can differ in the last bits depending on the order games
+ * were added and merged in, so it is left out of equals().
+ * <p>
+ * Games that a player cut short are counted as scoring 0, and also counted by their GameError code.
+ */
+public class SimulationResult {
+	public static final int MAX_SCORE = 25;
+	// The standard normal quantile for a two-sided 95% confidence interval.
+	public static final double Z_95 = 1.959963984540054;
+
+	private final int[] distribution = new int[MAX_SCORE + 1];
+	private long total;
+	private int numGames;
+	private final int[] errors = new int[GameError.NUM_CODES];
+	// Welford's running mean, and sum of squared deviations from it.
+	private double mean;
+	private double m2;
+
+	public void add(int score) {
+		distribution[score]++;
+		total += score;
+		numGames++;
+		double delta = score - mean;
+		mean += delta / numGames;
+		m2 += delta * (score - mean);
+	}
+
+	/**
+	 * Adds a game that ended with the given score, or with a score of 0 because of the given error.
+	 * @param error A GameError code; GameError.NONE for a game that finished normally
+	 */
+	public void add(int score, int error) {
+		add(score);
+		errors[error]++;
+	}
+
+	/**
+	 * Folds other into this result.
+	 * @return this result, for use as a combiner
+	 */
+	public SimulationResult merge(SimulationResult other) {
+		for (int i = 0; i < distribution.length; i++) {
+			distribution[i] += other.distribution[i];
+		}
+		for (int i = 0; i < errors.length; i++) {
+			errors[i] += other.errors[i];
+		}
+		if (other.numGames > 0) {
+			// Chan et al.'s rule for combining two running estimates.
+			long n = (long) numGames + other.numGames;
+			double delta = other.mean - mean;
+			mean += delta * other.numGames / n;
+			m2 += other.m2 + delta * delta * ((double) numGames * other.numGames / n);
+		}
+		total += other.total;
+		numGames += other.numGames;
+		return this;
+	}
+
+	/**
+	 * @return how many games ended with the given score
+	 */
+	public int count(int score) {
+		return distribution[score];
+	}
+
+	/**
+	 * @return how many games were cut short with the given GameError code
+	 */
+	public int getErrors(int error) {
+		return errors[error];
+	}
+
+	/**
+	 * @return how many games were cut short by any error
+	 */
+	public int getNumErrors() {
+		int result = 0;
+		for (int i = 1; i < errors.length; i++) {
+			result += errors[i];
+		}
+		return result;
+	}
+
+	/**
+	 * @return e.g. "3 errors: 2 bad index, 1 player exception", or "no errors"
+	 */
+	public String errorSummary() {
+		if (getNumErrors() == 0) {
+			return "no errors";
+		}
+		StringBuilder result = new StringBuilder().append(getNumErrors()).append(" errors:");
+		String separator = " ";
+		for (int i = 1; i < errors.length; i++) {
+			if (errors[i] > 0) {
+				result.append(separator).append(errors[i]).append(' ').append(GameError.name(i));
+				separator = ", ";
+			}
+		}
+		return result.toString();
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public int getNumGames() {
+		return numGames;
+	}
+
+	public double average() {
+		return numGames == 0 ? 0.0 : total / (double) numGames;
+	}
+
+	/**
+	 * @return the sample variance of the scores, or NaN for fewer than two games
+	 */
+	public double variance() {
+		return numGames < 2 ? Double.NaN : m2 / (numGames - 1);
+	}
+
+	/**
+	 * @return the standard error of average(), or NaN for fewer than two games
+	 */
+	public double standardError() {
+		return Math.sqrt(variance() / numGames);
+	}
+
+	/**
+	 * @param z The normal quantile for the confidence wanted, e.g. Z_95
+	 * @return the half-width of the normal-approximation confidence interval around average(); infinite for
+	 *         fewer than two games
+	 */
+	public double confidenceHalfWidth(double z) {
+		return numGames < 2 ? Double.POSITIVE_INFINITY : z * standardError();
+	}
+
+	/**
+	 * @return e.g. "18.874 +/- 0.049 (95% CI, 40960 games)"
+	 */
+	public String intervalSummary() {
+		return String.format("%.3f +/- %.3f (95%% CI, %d games)", average(), confidenceHalfWidth(Z_95), numGames);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof SimulationResult r)) {
+			return false;
+		}
+		return total == r.total && numGames == r.numGames && Arrays.equals(distribution, r.distribution)
+				&& Arrays.equals(errors, r.errors);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(distribution);
+	}
+}
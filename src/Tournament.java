@@ -0,0 +1,347 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * A round robin between registered bots: every ordered pairing, self-play included, plays the same set of seeded
+ * decks, with the first bot in seat 0 and the second in seat 1. Since every pairing sees the same deals, their
+ * differences are down to the bots rather than the luck of the deck.
+ * <p>
+ * The games of each pairing are cut into chunks of CHUNK_GAMES decks, and every chunk of every pairing is forked
+ * into one fork-join pool, so threads that finish the chunks of fast bots steal those of slow ones. Chunks are
+ * forked deck-major, so partial results cover every pairing about evenly.
+ * <p>
+ * Each finished chunk is appended to a results file as one line of text, which is written through before the next
+ * chunk is taken up. Running again with the same file skips the chunks it already holds, so an interrupted run
+ * carries on where it stopped. The file starts with a header naming the deck set; a file for different decks is
+ * refused, as is one with chunks for bots that are not registered. A line cut short by a crash is dropped.
+ * <p>
+ * Usage: Tournament numDecks [masterSeed [resultsFile]]
+ */
+public class Tournament {
+	public static final int CHUNK_GAMES = 64;
+
+	private static final String HEADER = "# Hanabi tournament v1";
+
+	private final int numDecks;
+	private final long masterSeed;
+	private final Map<String, Supplier<? extends Player>> bots = new LinkedHashMap<>();
+	private MoveWatchdog watchdog;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: Tournament numDecks [masterSeed [resultsFile]]");
+			return;
+		}
+		long masterSeed = args.length > 1 ? Long.parseLong(args[1]) : new SplittableRandom().nextLong();
+		Tournament tournament = new Tournament(Integer.parseInt(args[0]), masterSeed);
+		// Every Monte Carlo bot deals from the same seed, and starts it over each game, so a run is fixed by
+		// masterSeed and a resumed one plays the same games as one left to finish.
+		long monteCarloSeed = new SplittableRandom(masterSeed).split().nextLong();
+		tournament.register("rules", Player::new);
+		tournament.register("montecarlo", () -> new MonteCarloPlayer(32, 0, ForkJoinPool.commonPool(),
+				monteCarloSeed));
+		SimulationResult[][] results = tournament.run(ForkJoinPool.commonPool(),
+				args.length > 2 ? Path.of(args[2]) : null);
+		System.out.println("Seed " + masterSeed + "; " + tournament.numDecks + " decks");
+		System.out.print(tournament.crossTable(results));
+	}
+
+	/**
+	 * @param numDecks How many decks every pairing plays
+	 * @param masterSeed The seed the decks are drawn from, as in Driver
+	 */
+	public Tournament(int numDecks, long masterSeed) {
+		if (numDecks <= 0) {
+			throw new IllegalArgumentException("Tournament() - bad number of decks " + numDecks);
+		}
+		this.numDecks = numDecks;
+		this.masterSeed = masterSeed;
+	}
+
+	/**
+	 * Adds a bot to the round robin. Each chunk of games gets fresh players from factory, which are reset()
+	 * between its games.
+	 * @param name How the bot is shown and recorded; must be unique, and free of whitespace
+	 * @return this tournament
+	 */
+	public Tournament register(String name, Supplier<? extends Player> factory) {
+		if (name.isEmpty() || !name.equals(name.replaceAll("\\s", "")) || bots.containsKey(name)) {
+			throw new IllegalArgumentException("Tournament.register() - bad or duplicate name \"" + name + "\"");
+		}
+		bots.put(name, factory);
+		return this;
+	}
+
+	/**
+	 * Runs every askAction() call under watchdog's deadline; see Hanabi.setWatchdog(). The watchdog keeps its
+	 * statistics under the names the bots were registered with.
+	 * @param watchdog The watchdog to ask through; null to call the players directly
+	 */
+	public void setWatchdog(MoveWatchdog watchdog) {
+		this.watchdog = watchdog;
+	}
+
+	/**
+	 * @return the names of the registered bots, in the order they were registered
+	 */
+	public List<String> getNames() {
+		return new ArrayList<>(bots.keySet());
+	}
+
+	/**
+	 * Plays every chunk of every pairing that resultsFile does not already hold.
+	 * @param pool The pool to play the chunks on
+	 * @param resultsFile The file to record finished chunks to and resume from; null to keep nothing
+	 * @return results[a][b], the games with bot a in seat 0 and bot b in seat 1, by registration order
+	 * @throws IOException if the results file cannot be read or written, or is for a different tournament
+	 */
+	public SimulationResult[][] run(ForkJoinPool pool, Path resultsFile) throws IOException {
+		List<String> names = getNames();
+		int numChunks = (numDecks + CHUNK_GAMES - 1) / CHUNK_GAMES;
+		SimulationResult[][] results = new SimulationResult[names.size()][names.size()];
+		boolean[][][] done = new boolean[names.size()][names.size()][numChunks];
+		for (SimulationResult[] row : results) {
+			for (int b = 0; b < row.length; b++) {
+				row[b] = new SimulationResult();
+			}
+		}
+
+		try (ResultsFile file = resultsFile == null ? null : new ResultsFile(resultsFile)) {
+			if (file != null) {
+				file.load(names, results, done);
+			}
+			long[] seeds = Driver.gameSeeds(numDecks, masterSeed);
+			List<ForkJoinTask<?>> chunks = new ArrayList<>();
+			for (int chunk = 0; chunk < numChunks; chunk++) {
+				for (int a = 0; a < names.size(); a++) {
+					for (int b = 0; b < names.size(); b++) {
+						if (done[a][b][chunk]) {
+							continue;
+						}
+						int seatA = a;
+						int seatB = b;
+						int c = chunk;
+						chunks.add(ForkJoinTask.adapt(() -> {
+							SimulationResult result = playChunk(names.get(seatA), names.get(seatB), seeds, c);
+							synchronized (results) {
+								results[seatA][seatB].merge(result);
+								if (file != null) {
+									file.append(names.get(seatA), names.get(seatB), c, result);
+								}
+							}
+						}));
+					}
+				}
+			}
+			// Forked from inside the pool, the chunks land on a worker's deque, where idle workers steal them.
+			pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(chunks)));
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return results;
+	}
+
+	/**
+	 * Plays one chunk of decks with bot a in seat 0 and bot b in seat 1.
+	 */
+	private SimulationResult playChunk(String a, String b, long[] seeds, int chunk) {
+		SimulationResult result = new SimulationResult();
+		Hanabi game = null;
+		int end = Math.min(numDecks, (chunk + 1) * CHUNK_GAMES);
+		for (int i = chunk * CHUNK_GAMES; i < end; i++) {
+			if (game == null) {
+				game = new Hanabi(false, bots.get(a).get(), bots.get(b).get(), 0);
+				game.setWatchdog(watchdog, a, b);
+			}
+			game.reset(seeds[i]);
+			result.add(game.playSafely(), game.getError());
+			if (game.getError() == GameError.TIMEOUT) {
+				// A forfeited bot may still be running, so the next game gets new players.
+				game = null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param results As returned by run()
+	 * @return a table of the mean score of each pairing, with its 95% confidence interval, rows by the bot in
+	 *         seat 0 and columns by the bot in seat 1; then any errors, by pairing
+	 */
+	public String crossTable(SimulationResult[][] results) {
+		List<String> names = getNames();
+		int nameWidth = "seat 0 \\ seat 1".length();
+		for (String name : names) {
+			nameWidth = Math.max(nameWidth, name.length());
+		}
+		String[][] cells = new String[names.size()][names.size()];
+		int cellWidth = 0;
+		for (String name : names) {
+			cellWidth = Math.max(cellWidth, name.length());
+		}
+		for (int a = 0; a < names.size(); a++) {
+			for (int b = 0; b < names.size(); b++) {
+				SimulationResult r = results[a][b];
+				cells[a][b] = r.getNumGames() == 0 ? "-" : String.format("%.3f +/- %.3f", r.average(),
+						r.confidenceHalfWidth(SimulationResult.Z_95));
+				cellWidth = Math.max(cellWidth, cells[a][b].length());
+			}
+		}
+
+		StringBuilder table = new StringBuilder();
+		table.append(String.format("%-" + nameWidth + "s", "seat 0 \\ seat 1"));
+		for (String name : names) {
+			table.append("  ").append(String.format("%" + cellWidth + "s", name));
+		}
+		table.append('\n');
+		for (int a = 0; a < names.size(); a++) {
+			table.append(String.format("%-" + nameWidth + "s", names.get(a)));
+			for (int b = 0; b < names.size(); b++) {
+				table.append("  ").append(String.format("%" + cellWidth + "s", cells[a][b]));
+			}
+			table.append('\n');
+		}
+		for (int a = 0; a < names.size(); a++) {
+			for (int b = 0; b < names.size(); b++) {
+				if (results[a][b].getNumErrors() > 0) {
+					table.append(names.get(a)).append(" vs ").append(names.get(b)).append(": ")
+							.append(results[a][b].errorSummary()).append('\n');
+				}
+			}
+		}
+		return table.toString();
+	}
+
+	/**
+	 * The file finished chunks are recorded in. After the header, each line is one chunk: the two bots' names, the
+	 * chunk number, the SimulationResult's 26 score counts, then its GameError counts, separated by spaces.
+	 */
+	private final class ResultsFile implements Closeable {
+		private final Path path;
+		private final FileChannel channel;
+
+		ResultsFile(Path path) throws IOException {
+			this.path = path;
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+		}
+
+		private String header() {
+			return HEADER + " decks=" + numDecks + " seed=" + masterSeed + " chunk=" + CHUNK_GAMES;
+		}
+
+		/**
+		 * Reads the chunks already recorded into results and done, or writes the header to a new file, and
+		 * drops any line a crash cut short.
+		 */
+		void load(List<String> names, SimulationResult[][] results, boolean[][][] done) throws IOException {
+			String text = Files.readString(path, StandardCharsets.UTF_8);
+			int complete = text.lastIndexOf('\n') + 1;
+			channel.truncate(complete);
+			channel.position(complete);
+			if (complete == 0) {
+				write(header() + "\n");
+				return;
+			}
+			String[] lines = text.substring(0, complete).split("\n");
+			if (!lines[0].equals(header())) {
+				throw new IOException("Tournament.run() - " + path + " is not a results file for " + header());
+			}
+			for (int i = 1; i < lines.length; i++) {
+				String[] fields = lines[i].split(" ");
+				int a = names.indexOf(fields[0]);
+				int b = fields.length > 1 ? names.indexOf(fields[1]) : -1;
+				if (a < 0 || b < 0 || fields.length != 3 + SimulationResult.MAX_SCORE + 1 + GameError.NUM_CODES) {
+					throw new IOException("Tournament.run() - bad line " + (i + 1) + " of " + path
+							+ ", or a bot that is not registered");
+				}
+				int chunk = Integer.parseInt(fields[2]);
+				if (chunk < 0 || chunk >= done[a][b].length || done[a][b][chunk]) {
+					throw new IOException("Tournament.run() - bad chunk on line " + (i + 1) + " of " + path);
+				}
+				results[a][b].merge(parseChunk(fields, 3));
+				done[a][b][chunk] = true;
+			}
+		}
+
+		/**
+		 * Rebuilds a chunk's result from its counts, starting at fields[from].
+		 */
+		private SimulationResult parseChunk(String[] fields, int from) throws IOException {
+			int[] counts = new int[SimulationResult.MAX_SCORE + 1];
+			for (int score = 0; score < counts.length; score++) {
+				counts[score] = Integer.parseInt(fields[from + score]);
+			}
+			SimulationResult result = new SimulationResult();
+			int errorsFrom = from + counts.length;
+			for (int error = 0; error < GameError.NUM_CODES; error++) {
+				int count = Integer.parseInt(fields[errorsFrom + error]);
+				if (error == GameError.NONE) {
+					continue;
+				}
+				// Games cut short by an error were counted as scoring 0.
+				counts[0] -= count;
+				for (int i = 0; i < count; i++) {
+					result.add(0, error);
+				}
+			}
+			if (counts[0] < 0) {
+				throw new IOException("Tournament.run() - more errors than zero scores in a chunk of " + path);
+			}
+			for (int score = 0; score < counts.length; score++) {
+				for (int i = 0; i < counts[score]; i++) {
+					result.add(score, GameError.NONE);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Records one finished chunk.
+		 * @throws UncheckedIOException if the file cannot be written
+		 */
+		void append(String a, String b, int chunk, SimulationResult result) {
+			StringBuilder line = new StringBuilder().append(a).append(' ').append(b).append(' ').append(chunk);
+			for (int score = 0; score <= SimulationResult.MAX_SCORE; score++) {
+				line.append(' ').append(result.count(score));
+			}
+			for (int error = 0; error < GameError.NUM_CODES; error++) {
+				line.append(' ').append(result.getErrors(error));
+			}
+			try {
+				write(line.append('\n').toString());
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void write(String text) throws IOException {
+			ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
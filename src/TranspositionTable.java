@@ -0,0 +1,190 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size cache of search results, keyed by the Zobrist hash of a game state, that any number of threads
+ * can share.
+ * <p>
+ * Entries live in buckets of WAYS slots, chosen by the low bits of the hash. When a bucket is full, a new result
+ * replaces whichever entry is worth least: first any entry from an earlier generation (see nextGeneration()),
+ * then the one searched to the smallest depth. A new result that is shallower than everything it could replace
+ * is dropped instead. The table never grows, so its memory use is about ENTRY_BYTES per entry.
+ * <p>
+ * The buckets are split between STRIPES locks, so threads only contend when they touch the same stripe. Hits,
+ * misses and evictions are counted in LongAdders, to help size the table.
+ * <p>
+ * It is meant for searches whose value is a function of the hashed position. MonteCarloPlayer does not probe it:
+ * a playout's score also depends on the sampled order of the deck and on both players' card knowledge, which
+ * GameState.zobristHash() leaves out, and a table shared across its pool would make its choices depend on timing
+ * rather than only its seed.
+ */
+public class TranspositionTable {
+	public static final int WAYS = 4;
+	public static final int ENTRY_BYTES = Long.BYTES + Double.BYTES + Integer.BYTES;
+	private static final int STRIPES = 64;
+	public static final int MAX_DEPTH = (1 << 16) - 2;
+
+	private final long[] keys;
+	private final double[] values;
+	// (depth + 1) << 16 | generation; 0 for an empty slot.
+	private final int[] meta;
+	private final int bucketMask;
+	private final Object[] locks = new Object[STRIPES];
+	private volatile int generation;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param capacity The most entries to hold; rounded up to a power of two, and to at least one bucket
+	 */
+	public TranspositionTable(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("TranspositionTable() - bad capacity " + capacity);
+		}
+		int size = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+		keys = new long[size];
+		values = new double[size];
+		meta = new int[size];
+		bucketMask = size / WAYS - 1;
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * @return the largest table that fits in the given number of bytes
+	 */
+	public static TranspositionTable ofBytes(long bytes) {
+		long entries = Math.min(1 << 30, Math.max(1, bytes / ENTRY_BYTES));
+		return new TranspositionTable(Integer.highestOneBit((int) entries));
+	}
+
+	/**
+	 * Looks up the result stored for hash.
+	 * @param minDepth The shallowest search whose result is good enough
+	 * @return the stored value, or NaN if there is none from a search at least minDepth deep
+	 */
+	public double probe(long hash, int minDepth) {
+		int bucket = (int) hash & bucketMask;
+		int first = bucket * WAYS;
+		synchronized (locks[bucket & (STRIPES - 1)]) {
+			for (int i = first; i < first + WAYS; i++) {
+				if (meta[i] != 0 && keys[i] == hash) {
+					if (depthAt(i) < minDepth) {
+						break;
+					}
+					// Touching an entry keeps it from being aged out.
+					meta[i] = meta[i] & ~0xFFFF | generation;
+					hits.increment();
+					return values[i];
+				}
+			}
+		}
+		misses.increment();
+		return Double.NaN;
+	}
+
+	/**
+	 * Stores the result of searching the state with the given hash, unless the table holds a deeper one for it, or
+	 * its bucket is full of deeper results from this generation.
+	 * @param depth How deep the search behind value went, from 0 to MAX_DEPTH
+	 */
+	public void store(long hash, double value, int depth) {
+		if (depth < 0 || depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("TranspositionTable.store() - bad depth " + depth);
+		}
+		int bucket = (int) hash & bucketMask;
+		int first = bucket * WAYS;
+		int stamp = (depth + 1) << 16 | generation;
+		synchronized (locks[bucket & (STRIPES - 1)]) {
+			int victim = -1;
+			for (int i = first; i < first + WAYS; i++) {
+				if (meta[i] != 0 && keys[i] == hash) {
+					if (depth >= depthAt(i)) {
+						values[i] = value;
+						meta[i] = stamp;
+					}
+					return;
+				}
+				if (victim < 0 || worth(i) < worth(victim)) {
+					victim = i;
+				}
+			}
+			if (meta[victim] != 0) {
+				if (isCurrent(victim) && depthAt(victim) > depth) {
+					return;
+				}
+				evictions.increment();
+			}
+			keys[victim] = hash;
+			values[victim] = value;
+			meta[victim] = stamp;
+		}
+	}
+
+	private int depthAt(int i) {
+		return (meta[i] >>> 16) - 1;
+	}
+
+	private boolean isCurrent(int i) {
+		return (meta[i] & 0xFFFF) == generation;
+	}
+
+	/**
+	 * @return how much the entry in slot i is worth keeping: empty slots least, then stale entries, then by depth
+	 */
+	private int worth(int i) {
+		if (meta[i] == 0) {
+			return -2;
+		}
+		return isCurrent(i) ? depthAt(i) : -1;
+	}
+
+	/**
+	 * Marks every entry stored so far as stale, so new results replace them first. Call it between searches, e.g.
+	 * once per move.
+	 */
+	public void nextGeneration() {
+		// Generations wrap within 16 bits; an entry 65536 generations old looks current again, which is harmless.
+		generation = (generation + 1) & 0xFFFF;
+	}
+
+	/**
+	 * Empties the table and zeroes its counters. Only safe while no other thread is using it.
+	 */
+	public void clear() {
+		Arrays.fill(meta, 0);
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+
+	public int capacity() {
+		return keys.length;
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return how many entries have been replaced by results for a different state
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		long h = hits();
+		long m = misses();
+		return String.format("%d entries (%d KB): %d hits, %d misses (%.1f%% hit rate), %d evictions", capacity(),
+				(long) capacity() * ENTRY_BYTES / 1024, h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m), evictions());
+	}
+}
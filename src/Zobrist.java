@@ -0,0 +1,93 @@
+import java.util.SplittableRandom;
+
+/**
+ * The random keys behind the 64-bit Zobrist hashes kept by Board, Hand and GameState.
+ * <p>
+ * A position hashes to the XOR of one key for each fact about it: which card is in which hand position, how
+ * far each color has been played, how many copies of each card are in the discards, and the hint, fuse and deck
+ * counters. A move only changes a few of those facts, so Board and Hand update their hashes as they go by
+ * XOR-ing the old facts' keys out and the new ones in. The keys come from a fixed seed, so hashes are the same
+ * from run to run and can be stored.
+ */
+final class Zobrist {
+	// Hand positions with keys of their own; longer hands reuse them, which only weakens the hash.
+	static final int HAND_SLOTS = 16;
+
+	// A color's key for a tableau of 0, and a card's key for no discarded copies, are 0, so an empty board hashes
+	// to just its counters.
+	private static final long[][] TABLEAU = new long[Colors.MAX_COLOR + 1][Card.MAX_VALUE + 1];
+	// DISCARD[id][k] marks the (k + 1)th discarded copy of card id.
+	private static final long[][] DISCARD = new long[Card.NUM_CARDS][Card.numCopies(Card.MIN_VALUE)];
+	private static final long[][] HAND = new long[HAND_SLOTS][Card.NUM_CARDS];
+	private static final long[] HINTS = new long[Board.MAX_HINTS + 1];
+	private static final long[] FUSES = new long[Board.MAX_FUSES + 1];
+	private static final long[] DECK = new long[GameLog.DECK_SIZE + 1];
+	private static final long SECOND_PLAYER;
+
+	static {
+		SplittableRandom rand = new SplittableRandom(0x5A0B215AL);
+		for (long[] keys : TABLEAU) {
+			for (int v = Card.MIN_VALUE; v < keys.length; v++) {
+				keys[v] = rand.nextLong();
+			}
+		}
+		fill(DISCARD, rand);
+		fill(HAND, rand);
+		fill(new long[][] {HINTS, FUSES, DECK}, rand);
+		SECOND_PLAYER = rand.nextLong();
+	}
+
+	private Zobrist() {
+	}
+
+	private static void fill(long[][] table, SplittableRandom rand) {
+		for (long[] keys : table) {
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = rand.nextLong();
+			}
+		}
+	}
+
+	/**
+	 * @return the key for color having been played up to value
+	 */
+	static long tableau(int color, int value) {
+		return TABLEAU[color][value];
+	}
+
+	/**
+	 * @return the key for the (copy + 1)th discarded copy of card id
+	 */
+	static long discard(int id, int copy) {
+		return DISCARD[id][copy];
+	}
+
+	/**
+	 * @return the key for card id being at position slot of a hand
+	 */
+	static long hand(int slot, int id) {
+		return HAND[slot & (HAND_SLOTS - 1)][id];
+	}
+
+	/**
+	 * @return the combined key for a board's counters
+	 */
+	static long counters(int numHints, int numFuses, int deckSize) {
+		return HINTS[numHints] ^ FUSES[numFuses] ^ DECK[deckSize];
+	}
+
+	/**
+	 * Gives the two seats' hands different keys, so swapping the hands changes the hash.
+	 * @return handHash as it contributes to a game's hash when held by player
+	 */
+	static long seat(int player, long handHash) {
+		return player == 0 ? handHash : Long.rotateLeft(handHash, 32);
+	}
+
+	/**
+	 * @return the key for whose turn it is
+	 */
+	static long turn(int player) {
+		return player == 0 ? 0 : SECOND_PLAYER;
+	}
+}
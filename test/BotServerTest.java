@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BotServerTest {
+	private BotServer server;
+
+	@BeforeEach
+	void listen() throws IOException {
+		server = new BotServer(0);
+	}
+
+	@AfterEach
+	void close() throws IOException {
+		server.close();
+	}
+
+	/**
+	 * Connects a RemoteBot playing players to the server, serving on a thread of its own until either side hangs up.
+	 */
+	private RemoteBot startBot(Supplier<? extends Player> players) throws IOException {
+		RemoteBot bot = new RemoteBot("127.0.0.1", server.getPort(), players);
+		Thread thread = new Thread(() -> {
+			try (bot) {
+				bot.serve();
+			}
+			catch (IOException e) {
+				// Hung up on.
+			}
+		}, "RemoteBot");
+		thread.setDaemon(true);
+		thread.start();
+		server.awaitBots(1);
+		return bot;
+	}
+
+	@Test
+	void remoteGamesMatchInProcessGames() throws IOException {
+		startBot(Player::new);
+		SimulationResult remote = server.playGames(5000, 42, BotServer.DEFAULT_MAX_CONCURRENT);
+		assertEquals(Driver.simulateGames(5000, 42L, false, Player::new), remote);
+		assertEquals(0, remote.getNumErrors());
+	}
+
+	@Test
+	void lateActionsAreDroppedAfterATimeout() throws IOException, InterruptedException {
+		AtomicInteger delayMillis = new AtomicInteger(150);
+		startBot(() -> new Player() {
+			@Override
+			public int askAction(int yourHandSize, HandView partnerHand, BoardView boardState) {
+				try {
+					Thread.sleep(delayMillis.get());
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.askAction(yourHandSize, partnerHand, boardState);
+			}
+		});
+		SimulationResult slow = server.playGames(8, 3, 4, 50);
+		assertEquals(8, slow.getNumGames());
+		assertEquals(8, slow.getErrors(GameError.TIMEOUT));
+
+		// The late ACTIONs come in after their games ended; they must not cost the bot its connection.
+		Thread.sleep(8 * 150 + 200);
+		delayMillis.set(0);
+		SimulationResult fast = server.playGames(500, 11, BotServer.DEFAULT_MAX_CONCURRENT);
+		assertEquals(Driver.simulateGames(500, 11L, false, Player::new), fast);
+	}
+
+	@Test
+	void disconnectedBotLosesOnlyItsGamesInFlight() throws IOException {
+		int maxConcurrent = 16;
+		startBot(Player::new);
+		AtomicReference<RemoteBot> quitter = new AtomicReference<>();
+		AtomicInteger moves = new AtomicInteger();
+		quitter.set(startBot(() -> new Player() {
+			@Override
+			public int askAction(int yourHandSize, HandView partnerHand, BoardView boardState) {
+				if (moves.incrementAndGet() == 100) {
+					try {
+						quitter.get().close();
+					}
+					catch (IOException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				return super.askAction(yourHandSize, partnerHand, boardState);
+			}
+		}));
+
+		SimulationResult result = server.playGames(2000, 7, maxConcurrent);
+		assertEquals(2000, result.getNumGames());
+		int lost = result.getErrors(GameError.PLAYER_EXCEPTION);
+		assertTrue(lost > 0 && lost <= maxConcurrent, lost + " games lost");
+		assertEquals(lost, result.getNumErrors());
+	}
+}
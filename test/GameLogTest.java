@@ -0,0 +1,116 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameLogTest {
+	private static final int GAMES = 200;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void deckPacksAndUnpacks() {
+		SplittableRandom rand = new SplittableRandom(1);
+		byte[] packed = new byte[1 + GameLog.DECK_BYTES];
+		int[] unpacked = new int[GameLog.DECK_SIZE];
+		for (int n = 0; n < 100; n++) {
+			GameState state = new GameState();
+			state.shuffle(rand);
+			GameLog.packDeck(state.deck, packed, 1);
+			GameLog.unpackDeck(packed, 1, unpacked);
+			assertArrayEquals(state.deck, unpacked);
+		}
+	}
+
+	@Test
+	void everyActionEncodesAndDecodes() {
+		for (int i = 0; i < GameState.HAND_SIZE; i++) {
+			for (int d = 0; d < GameState.HAND_SIZE; d++) {
+				assertEquals(Action.play(i, d), GameLog.decodeAction(GameLog.encodeAction(Action.play(i, d))));
+				assertEquals(Action.discard(i, d), GameLog.decodeAction(GameLog.encodeAction(Action.discard(i, d))));
+			}
+		}
+		for (int v = Card.MIN_VALUE; v <= Card.MAX_VALUE; v++) {
+			assertEquals(Action.numberHint(v), GameLog.decodeAction(GameLog.encodeAction(Action.numberHint(v))));
+		}
+		for (int c = 0; c <= Colors.MAX_COLOR; c++) {
+			if (Colors.isSuit(c)) {
+				assertEquals(Action.colorHint(c), GameLog.decodeAction(GameLog.encodeAction(Action.colorHint(c))));
+			}
+		}
+	}
+
+	@Test
+	void recordedGamesReplay() throws IOException {
+		String path = dir.resolve("games.log").toString();
+		List<long[]> played = new ArrayList<>();
+		List<int[]> decks = new ArrayList<>();
+		try (GameLogWriter writer = new GameLogWriter(path)) {
+			Hanabi game = new Hanabi(false, new Player(), new Player(), 0);
+			game.setRecorder(writer);
+			for (long seed = 0; seed < GAMES; seed++) {
+				game.reset(seed);
+				decks.add(game.getState().deck.clone());
+				int score = game.play();
+				played.add(new long[] {seed, score, game.getTurns()});
+			}
+		}
+		assertEquals(GameLog.offset(GAMES), Files.size(Path.of(path)));
+
+		List<long[]> replayed = new ArrayList<>();
+		try (Replay replay = new Replay(path)) {
+			assertEquals(GAMES, replay.numGames());
+			replay.fold(() -> replayed, new Replay.Visitor<List<long[]>>() {
+				@Override
+				public void turn(List<long[]> acc, Replay.Game game, int action) {
+				}
+
+				@Override
+				public void endGame(List<long[]> acc, Replay.Game game) {
+					int[] deck = new int[GameLog.DECK_SIZE];
+					for (int i = 0; i < deck.length; i++) {
+						deck[i] = game.getDeckCard(i);
+					}
+					assertArrayEquals(decks.get((int) game.getNumber()), deck);
+					acc.add(new long[] {game.getSeed(), game.getRecordedScore(), game.getNumActions()});
+				}
+			}, (a, b) -> a, false);
+		}
+		assertEquals(GAMES, replayed.size());
+		for (int n = 0; n < GAMES; n++) {
+			assertArrayEquals(played.get(n), replayed.get(n));
+		}
+	}
+
+	@Test
+	void tornRecordIsDropped() throws IOException {
+		String path = dir.resolve("torn.log").toString();
+		try (GameLogWriter writer = new GameLogWriter(path)) {
+			Hanabi game = new Hanabi(false, new Player(), new Player(), 0);
+			game.setRecorder(writer);
+			for (long seed = 0; seed < 3; seed++) {
+				game.reset(seed);
+				game.play();
+			}
+		}
+		try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.WRITE)) {
+			channel.truncate(GameLog.offset(3) - 1);
+		}
+		try (Replay replay = new Replay(path)) {
+			assertEquals(2, replay.numGames());
+		}
+		new GameLogWriter(path).close();
+		assertEquals(GameLog.offset(2), Files.size(Path.of(path)));
+	}
+}
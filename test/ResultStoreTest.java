@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultStoreTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void percentilesOfAKnownHistogram() {
+		ResultStore.Summary summary = new ResultStore.Summary();
+		assertEquals(-1, summary.percentile(50));
+		for (int value : new int[] {20, 10, 0, 10}) {
+			summary.add(value);
+		}
+		assertEquals(4, summary.getCount());
+		assertEquals(10.0, summary.mean());
+		assertEquals(2, summary.count(10));
+		assertEquals(0, summary.percentile(0));
+		assertEquals(0, summary.percentile(25));
+		assertEquals(10, summary.percentile(26));
+		assertEquals(10, summary.percentile(50));
+		assertEquals(10, summary.percentile(75));
+		assertEquals(20, summary.percentile(76));
+		assertEquals(20, summary.percentile(100));
+		assertThrows(IllegalArgumentException.class, () -> summary.percentile(101));
+		assertThrows(IllegalArgumentException.class, () -> summary.percentile(Double.NaN));
+	}
+
+	@Test
+	void reopeningCutsColumnsToTheirCommonLength() throws IOException {
+		try (ResultStoreWriter writer = new ResultStoreWriter(dir.toString())) {
+			int id = writer.strategyId("rules");
+			for (int row = 0; row < 10; row++) {
+				writer.append(row, row, 50 + row, 3, 20, 0, GameError.NONE, id);
+			}
+		}
+		// As if a crash came between writing the columns: one has rows and half a row more, one has fewer.
+		Path seeds = dir.resolve(ResultStore.fileName(ResultStore.SEED));
+		Files.write(seeds, new byte[2 * Long.BYTES + 3], StandardOpenOption.APPEND);
+		try (FileChannel turns = FileChannel.open(dir.resolve(ResultStore.fileName(ResultStore.TURNS)),
+				StandardOpenOption.WRITE)) {
+			turns.truncate(ResultStore.FILE_HEADER_BYTES + 7 * ResultStore.columnBytes(ResultStore.TURNS) + 1);
+		}
+
+		try (ResultStoreWriter writer = new ResultStoreWriter(dir.toString())) {
+			for (int c = 0; c < ResultStore.NUM_COLUMNS; c++) {
+				assertEquals(ResultStore.FILE_HEADER_BYTES + 7L * ResultStore.columnBytes(c),
+						Files.size(dir.resolve(ResultStore.fileName(c))), ResultStore.fileName(c));
+			}
+			writer.append(99, 25, 70, 1, 30, 2, GameError.NONE, writer.strategyId("rules"));
+		}
+
+		try (ResultStore store = new ResultStore(dir.toString())) {
+			assertEquals(8, store.size());
+			for (int row = 0; row < 7; row++) {
+				assertEquals(row, store.get(ResultStore.SEED, row));
+				assertEquals(50 + row, store.get(ResultStore.TURNS, row));
+			}
+			assertEquals(99, store.get(ResultStore.SEED, 7));
+			assertEquals(25, store.get(ResultStore.SCORE, 7));
+			assertEquals(70, store.get(ResultStore.TURNS, 7));
+			assertEquals(2, store.get(ResultStore.MISPLAYS, 7));
+		}
+	}
+
+	@Test
+	void groupByStrategy() throws IOException {
+		try (ResultStoreWriter writer = new ResultStoreWriter(dir.toString())) {
+			int rules = writer.strategyId("rules");
+			int safest = writer.strategyId("safest");
+			for (int score : List.of(18, 20, 22)) {
+				writer.append(score, score, 60, 3, 20, 0, GameError.NONE, rules);
+			}
+			for (int score : List.of(24, 25)) {
+				writer.append(score, score, 60, 3, 20, 0, GameError.NONE, safest);
+			}
+			writer.append(0, 0, 10, 3, 2, 0, GameError.TIMEOUT, safest);
+		}
+
+		try (ResultStore store = new ResultStore(dir.toString())) {
+			assertEquals("rules", store.strategyName(0));
+			assertEquals("safest", store.strategyName(1));
+
+			Map<Integer, ResultStore.Summary> groups = store.groupBy(ResultStore.STRATEGY, ResultStore.SCORE, null);
+			assertEquals(List.of(0, 1), List.copyOf(groups.keySet()));
+			assertEquals(3, groups.get(0).getCount());
+			assertEquals(20.0, groups.get(0).mean());
+			assertEquals(18, groups.get(0).percentile(0));
+			assertEquals(22, groups.get(0).percentile(100));
+			assertEquals(3, groups.get(1).getCount());
+			assertEquals(0, groups.get(1).percentile(0));
+			assertEquals(25, groups.get(1).percentile(100));
+
+			// Only the games that ran their course.
+			Map<Integer, ResultStore.Summary> clean = store.groupBy(ResultStore.STRATEGY, ResultStore.SCORE,
+					row -> store.get(ResultStore.ERROR, row) == GameError.NONE);
+			assertEquals(2, clean.get(1).getCount());
+			assertEquals(24.5, clean.get(1).mean());
+
+			Map<Integer, ResultStore.Summary> byError = store.groupBy(ResultStore.ERROR, ResultStore.TURNS, null);
+			assertEquals(List.of(GameError.NONE, GameError.TIMEOUT), List.copyOf(byError.keySet()));
+			assertEquals(5, byError.get(GameError.NONE).getCount());
+			assertEquals(10.0, byError.get(GameError.TIMEOUT).mean());
+		}
+	}
+}
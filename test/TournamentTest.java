@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TournamentTest {
+	private static final int DECKS = 5 * Tournament.CHUNK_GAMES - 10;
+	private static final long SEED = 23;
+	private static final PlayerParams SAFEST = new PlayerParams(PlayerParams.DEFAULT.getGambleThreshold(),
+			PlayerParams.DEFAULT.getMinFusesToGamble(), PlayerParams.CHOP_SAFEST, PlayerParams.DEFAULT.getRuleOrder());
+
+	private final ForkJoinPool pool = new ForkJoinPool(2);
+
+	@TempDir
+	Path dir;
+
+	@AfterEach
+	void shutDown() {
+		pool.shutdownNow();
+	}
+
+	private static Tournament tournament(long seed, Supplier<? extends Player> safest) {
+		return new Tournament(DECKS, seed).register("rules", Player::new).register("safest", safest);
+	}
+
+	@Test
+	void resumedRunMatchesUninterruptedRun() throws IOException {
+		SimulationResult[][] expected = tournament(SEED, () -> new Player(SAFEST)).run(pool, null);
+
+		// The safest bot breaks after a few chunks, ending the run with only some of them recorded.
+		Path file = dir.resolve("results.txt");
+		AtomicInteger made = new AtomicInteger();
+		Tournament broken = tournament(SEED, () -> {
+			if (made.incrementAndGet() > 6) {
+				throw new IllegalStateException("broken bot");
+			}
+			return new Player(SAFEST);
+		});
+		assertThrows(RuntimeException.class, () -> broken.run(pool, file));
+		long recorded = Files.readAllLines(file, StandardCharsets.UTF_8).size() - 1;
+		assertTrue(recorded > 0 && recorded < 4 * 5, recorded + " chunks recorded");
+		// As if the crash came in the middle of writing a line.
+		Files.writeString(file, "safest rules 4 0 1 2", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+		SimulationResult[][] resumed = tournament(SEED, () -> new Player(SAFEST)).run(pool, file);
+		assertResultsEqual(expected, resumed);
+		assertEquals(1 + 4 * 5, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+
+		// Every chunk is on file now, so nothing is played again.
+		SimulationResult[][] reloaded = tournament(SEED, () -> {
+			throw new IllegalStateException("played a recorded chunk");
+		}).run(pool, file);
+		assertResultsEqual(expected, reloaded);
+	}
+
+	@Test
+	void resultsForOtherDecksAreRefused() throws IOException {
+		Path file = dir.resolve("results.txt");
+		tournament(SEED, () -> new Player(SAFEST)).run(pool, file);
+		assertThrows(IOException.class, () -> tournament(SEED + 1, () -> new Player(SAFEST)).run(pool, file));
+	}
+
+	private static void assertResultsEqual(SimulationResult[][] expected, SimulationResult[][] actual) {
+		for (int a = 0; a < expected.length; a++) {
+			for (int b = 0; b < expected[a].length; b++) {
+				assertEquals(expected[a][b], actual[a][b], "pairing " + a + " vs " + b);
+			}
+		}
+	}
+}
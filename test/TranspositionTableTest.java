@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+	@Test
+	void capacityIsRoundedUp() {
+		assertEquals(8, new TranspositionTable(5).capacity());
+		assertEquals(TranspositionTable.WAYS, new TranspositionTable(1).capacity());
+		assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+		assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(4).store(1, 0, -1));
+	}
+
+	@Test
+	void probesCountHitsAndMisses() {
+		TranspositionTable table = new TranspositionTable(4);
+		assertTrue(Double.isNaN(table.probe(1, 0)));
+		table.store(1, 10.5, 3);
+		assertEquals(10.5, table.probe(1, 3));
+		// A stored result from a shallower search than asked for is a miss.
+		assertTrue(Double.isNaN(table.probe(1, 4)));
+		assertEquals(1, table.hits());
+		assertEquals(2, table.misses());
+
+		// A shallower result for the same state is ignored; a deeper one replaces it.
+		table.store(1, 1.0, 2);
+		assertEquals(10.5, table.probe(1, 0));
+		table.store(1, 2.0, 5);
+		assertEquals(2.0, table.probe(1, 5));
+		assertEquals(0, table.evictions());
+
+		table.clear();
+		assertEquals(0, table.hits());
+		assertEquals(0, table.misses());
+		assertTrue(Double.isNaN(table.probe(1, 0)));
+	}
+
+	@Test
+	void fullBucketReplacesByDepth() {
+		// Four entries make a single bucket, so every hash competes for the same slots.
+		TranspositionTable table = new TranspositionTable(4);
+		table.store(1, 1, 5);
+		table.store(2, 2, 3);
+		table.store(3, 3, 7);
+		table.store(4, 4, 4);
+
+		// Shallower than everything in the bucket: dropped.
+		table.store(5, 5, 2);
+		assertTrue(Double.isNaN(table.probe(5, 0)));
+		assertEquals(0, table.evictions());
+
+		// As deep as the shallowest entry: replaces it.
+		table.store(6, 6, 3);
+		assertEquals(6, table.probe(6, 0));
+		assertTrue(Double.isNaN(table.probe(2, 0)));
+		assertEquals(1, table.evictions());
+		for (long hash : new long[] {1, 3, 4}) {
+			assertEquals(hash, table.probe(hash, 0));
+		}
+	}
+
+	@Test
+	void staleEntriesAreReplacedFirst() {
+		TranspositionTable table = new TranspositionTable(4);
+		table.store(1, 1, 9);
+		table.store(2, 2, 8);
+		table.store(3, 3, 7);
+		table.store(4, 4, 6);
+
+		table.nextGeneration();
+		// Probing an entry makes it current again; every other entry is stale, however deep.
+		table.probe(1, 0);
+		table.probe(2, 0);
+		table.probe(3, 0);
+		table.store(5, 5, 1);
+		assertEquals(5, table.probe(5, 0));
+		assertTrue(Double.isNaN(table.probe(4, 0)));
+		assertEquals(1, table.evictions());
+
+		// With the bucket all current again, a result shallower than all of it is dropped once more.
+		table.store(6, 6, 0);
+		assertTrue(Double.isNaN(table.probe(6, 0)));
+		assertEquals(1, table.evictions());
+	}
+}